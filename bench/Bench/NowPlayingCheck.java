@@ -0,0 +1,146 @@
+package Bench;
+
+import Model.HttpTransport;
+import Model.NowPlaying;
+import Model.NowPlayingPage;
+import Model.ScheduleInterner;
+import Model.StreamParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a right now listing of two pages from a local server and reads
+ * it the way APIParser.parseRightNow does, through HttpTransport and
+ * StreamParser. Prints the requests made and the current and next
+ * episode found for each channel. Episodes hold program and channel
+ * elements of their own, which must not be read as channels.
+ * <p>
+ * Usage: java -cp out Bench.NowPlayingCheck
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class NowPlayingCheck {
+
+    private static final int PAGES = 2;
+    private static final int CHANNELS_PER_PAGE = 3;
+
+    /**
+     * Run check.
+     *
+     * @param args Not used.
+     * @throws IOException        If the server or a request fails.
+     * @throws XMLStreamException If a page can not be parsed.
+     */
+    public static void main(String[] args)
+            throws IOException, XMLStreamException {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(
+                new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/rightnow", exchange -> {
+            requests.incrementAndGet();
+            serve(exchange);
+        });
+        server.start();
+
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort()
+                    + "/rightnow?format=xml";
+            HttpTransport transport = new HttpTransport();
+            StreamParser parser = new StreamParser(new ScheduleInterner());
+
+            NowPlayingPage first = transport.get(url, "",
+                    parser::parseRightNow);
+            List<NowPlaying> all = new ArrayList<>(first.getChannels());
+            for (int page = 2; page <= first.getTotalPages(); page++) {
+                all.addAll(transport.get(url + "&page=" + page, "",
+                        parser::parseRightNow).getChannels());
+            }
+
+            System.out.printf("%d requests, %d pages, %d channels%n",
+                    requests.get(), first.getTotalPages(), all.size());
+            for (NowPlaying channel : all) {
+                System.out.printf("Channel %d: now %s, next %s%n",
+                        channel.getChannelId(),
+                        channel.getCurrent().getName(),
+                        channel.getNext().getName());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Answer a request with the asked for page.
+     *
+     * @param exchange Request.
+     * @throws IOException If the answer can not be sent.
+     */
+    private static void serve(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        int page = query.contains("page=2") ? 2 : 1;
+        byte[] body = page(page).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Build a page in the format of the right now API.
+     *
+     * @param page Page number, from 1.
+     * @return Page.
+     */
+    private static String page(int page) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n")
+                .append("  <pagination><page>").append(page)
+                .append("</page><totalpages>").append(PAGES)
+                .append("</totalpages></pagination>\n  <channels>\n");
+        for (int i = 0; i < CHANNELS_PER_PAGE; i++) {
+            int id = page * 100 + i;
+            sb.append("    <channel id=\"").append(id)
+                    .append("\" name=\"Kanal ").append(id).append("\">\n")
+                    .append(episode("currentscheduledepisode", id, "Nu",
+                            "2024-01-01T10:00:00Z", "2024-01-01T11:00:00Z"))
+                    .append(episode("nextscheduledepisode", id, "Sedan",
+                            "2024-01-01T11:00:00Z", "2024-01-01T12:00:00Z"))
+                    .append("    </channel>\n");
+        }
+        sb.append("  </channels>\n</sr>\n");
+        return sb.toString();
+    }
+
+    /**
+     * Build an episode element with nested program and channel elements.
+     *
+     * @param tag     Element name.
+     * @param channel Channel id.
+     * @param title   Title prefix.
+     * @param start   Start time.
+     * @param end     End time.
+     * @return Episode element.
+     */
+    private static String episode(String tag, int channel, String title,
+                                  String start, String end) {
+        return "      <" + tag + ">\n"
+                + "        <title>" + title + " på " + channel
+                + "</title>\n"
+                + "        <starttimeutc>" + start + "</starttimeutc>\n"
+                + "        <endtimeutc>" + end + "</endtimeutc>\n"
+                + "        <program id=\"1\" name=\"Program\" />\n"
+                + "        <channel id=\"" + channel
+                + "\" name=\"Kanal\" />\n"
+                + "      </" + tag + ">\n";
+    }
+}
@@ -0,0 +1,241 @@
+package Bench;
+
+import Model.Program;
+import Model.ProgramColumns;
+import Model.ScheduleIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures ScheduleIndex. First its answers are checked against a linear
+ * scan on random overlapping schedules. Then at() is timed on a schedule
+ * with one program lasting the whole week and short programs with gaps
+ * between them, against the earlier walk over prefix max end times.
+ * Last, at() is asked for all channels at once.
+ * <p>
+ * Usage: java -cp out Bench.ScheduleIndexBench
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ScheduleIndexBench {
+
+    private static final long WEEK = 7 * 24 * 3_600_000L;
+    private static final int ROUNDS = 5;
+    private static final int QUERIES = 200_000;
+    private static final int CHANNELS = 200;
+    private static final int CHANNEL_QUERIES = 10_000;
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Not used.
+     */
+    public static void main(String[] args) {
+        System.out.printf("Mismatches against a linear scan: %d%n",
+                checkAgainstScan());
+        for (int programs : new int[]{280, 2_800, 28_000}) {
+            timeLongProgram(programs);
+        }
+        timeAllChannels();
+    }
+
+    /**
+     * Compare at() and overlapping() with a linear scan.
+     *
+     * @return Amount of different answers.
+     */
+    private static int checkAgainstScan() {
+        Random random = new Random(7);
+        int mismatches = 0;
+        for (int schedule = 0; schedule < 2_000; schedule++) {
+            List<Program> programs = new ArrayList<>();
+            int size = random.nextInt(40);
+            for (int i = 0; i < size; i++) {
+                long start = random.nextInt(500);
+                int length = random.nextBoolean() ? 20 : 300;
+                programs.add(program("p" + i, start,
+                        start + 1 + random.nextInt(length)));
+            }
+            ProgramColumns columns = ProgramColumns.sortedByStart(programs);
+            ScheduleIndex index = new ScheduleIndex(columns);
+
+            for (int query = 0; query < 30; query++) {
+                long from = random.nextInt(900) - 100;
+                long to = from + random.nextInt(100);
+                String expected = null;
+                List<String> expectedOverlap = new ArrayList<>();
+                for (int row = 0; row < columns.size(); row++) {
+                    if (columns.getStart(row) <= from
+                            && columns.getEnd(row) > from) {
+                        expected = key(columns.getProgram(row));
+                    }
+                    if (columns.getStart(row) < to
+                            && columns.getEnd(row) > from) {
+                        expectedOverlap.add(key(columns.getProgram(row)));
+                    }
+                }
+                Program at = index.at(from);
+                if (!String.valueOf(expected).equals(
+                        at == null ? "null" : key(at))) {
+                    mismatches++;
+                }
+                List<String> overlap = new ArrayList<>();
+                for (Program p : index.overlapping(from, to)) {
+                    overlap.add(key(p));
+                }
+                if (!overlap.equals(expectedOverlap)) {
+                    mismatches++;
+                }
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Time at() on a week with one program lasting all of it and short
+     * programs that each leave a gap before the next.
+     *
+     * @param size Amount of short programs.
+     */
+    private static void timeLongProgram(int size) {
+        List<Program> programs = new ArrayList<>();
+        programs.add(program("Hela veckan", 0, WEEK));
+        long slot = WEEK / size;
+        for (int i = 0; i < size; i++) {
+            programs.add(program("p" + i, i * slot + 1, i * slot + slot / 2));
+        }
+        ProgramColumns columns = ProgramColumns.sortedByStart(programs);
+        ScheduleIndex index = new ScheduleIndex(columns);
+        long[] maxEnds = prefixMaxEnds(columns);
+        Random random = new Random(1);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                Program p = prefixWalk(columns, maxEnds,
+                        (long) (random.nextDouble() * WEEK));
+                sink += p == null ? 0 : 1;
+            }
+            long walkTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < QUERIES; i++) {
+                Program p = index.at((long) (random.nextDouble() * WEEK));
+                sink += p == null ? 0 : 1;
+            }
+            long treeTime = System.nanoTime() - start;
+            if (round == ROUNDS - 1) {
+                System.out.printf("%d programs and one lasting the week:"
+                                + " prefix walk %.0f ns, tree %.0f ns per"
+                                + " at() (%d)%n", size + 1,
+                        walkTime / (double) QUERIES,
+                        treeTime / (double) QUERIES, sink);
+            }
+        }
+    }
+
+    /**
+     * Time at() over all channels, each with a week of programs.
+     */
+    private static void timeAllChannels() {
+        Map<Integer, ScheduleIndex> indexes = new HashMap<>();
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            List<Program> programs = new ArrayList<>();
+            for (long time = 0; time < WEEK; time += 1_800_000L) {
+                programs.add(program("p" + channel, time,
+                        time + 1_800_000L));
+            }
+            indexes.put(channel,
+                    new ScheduleIndex(ProgramColumns.sortedByStart(programs)));
+        }
+        Random random = new Random(3);
+        for (int round = 0; round < ROUNDS; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < CHANNEL_QUERIES; i++) {
+                sink += ScheduleIndex.at(indexes,
+                        (long) (random.nextDouble() * WEEK)).size();
+            }
+            System.out.printf("Round %d: %d at() over %d channels in %d ms"
+                            + " (%d)%n", round, CHANNEL_QUERIES, CHANNELS,
+                    (System.nanoTime() - start) / 1_000_000, sink);
+        }
+    }
+
+    /**
+     * Largest end time so far for each row, as the earlier index kept.
+     *
+     * @param columns Schedule.
+     * @return Prefix max end times.
+     */
+    private static long[] prefixMaxEnds(ProgramColumns columns) {
+        long[] maxEnds = new long[columns.size()];
+        long maxEnd = Long.MIN_VALUE;
+        for (int row = 0; row < maxEnds.length; row++) {
+            maxEnd = Math.max(maxEnd, columns.getEnd(row));
+            maxEnds[row] = maxEnd;
+        }
+        return maxEnds;
+    }
+
+    /**
+     * Find the row airing at a time the way the earlier index did,
+     * walking back while the prefix max end is after the time.
+     *
+     * @param columns Schedule.
+     * @param maxEnds Prefix max end times.
+     * @param time    Time.
+     * @return Program, or null if none.
+     */
+    private static Program prefixWalk(ProgramColumns columns, long[] maxEnds,
+                                  long time) {
+        int low = 0;
+        int high = columns.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.getStart(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int row = low - 1; row >= 0 && maxEnds[row] > time; row--) {
+            if (columns.getEnd(row) > time) {
+                return columns.getProgram(row);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Create a program.
+     *
+     * @param name  Title.
+     * @param start Start time.
+     * @param end   End time.
+     * @return Program.
+     */
+    private static Program program(String name, long start, long end) {
+        Program p = new Program();
+        p.setName(name);
+        p.setStartTime(start);
+        p.setEndTime(end);
+        return p;
+    }
+
+    /**
+     * Describe a program for comparisons.
+     *
+     * @param p Program.
+     * @return Title and times.
+     */
+    private static String key(Program p) {
+        return p.getName() + "@" + p.getStartMillis() + "-"
+                + p.getEndMillis();
+    }
+}
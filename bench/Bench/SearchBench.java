@@ -0,0 +1,233 @@
+package Bench;
+
+import Model.Program;
+import Model.ProgramColumns;
+import Model.ProgramSearchIndex;
+import Model.ScheduleCache;
+import Model.ScheduleInterner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures ProgramSearchIndex on synthetic schedules: time and heap to
+ * index all channels, and time per query of up to 200 hits. Then checks
+ * that cache listeners get every change in order while several threads
+ * put and invalidate the same channels.
+ * <p>
+ * Usage: java -cp out Bench.SearchBench
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class SearchBench {
+
+    private static final int ROUNDS = 5;
+    private static final int CHANNELS = 50;
+    private static final int DAYS = 7;
+    private static final int PROGRAMS_PER_DAY = 40;
+    private static final int SERIES = 300;
+    private static final int WORDS_PER_DESCRIPTION = 25;
+    private static final String[] QUERIES = {"m", "mu", "musik",
+        "ny ter", "sport e", "öster"};
+    private static final String[] SYLLABLES = {"mu", "sik", "ny", "he",
+        "ter", "sport", "e", "kot", "kul", "tur", "ve", "ten", "skap",
+        "sam", "tal", "do", "ku", "ös", "ter", "gö", "te", "borg", "mal",
+        "mö", "jazz", "klas", "pop", "in", "vju", "de", "batt", "kväll",
+        "helg", "barn", "film", "pol", "ek", "vä", "der", "lo", "kal"};
+    private static final int VOCABULARY = 5_000;
+
+    private static final int STRESS_THREADS = 4;
+    private static final int STRESS_CHANGES = 20_000;
+    private static final int STRESS_CHANNELS = 8;
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Not used.
+     * @throws InterruptedException If interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Map<Integer, ProgramColumns> schedules = schedules();
+
+        ProgramSearchIndex index = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            index = null;
+            long heap = usedHeap();
+            long start = System.nanoTime();
+            index = new ProgramSearchIndex();
+            for (Map.Entry<Integer, ProgramColumns> e
+                    : schedules.entrySet()) {
+                index.update(e.getKey(), e.getValue());
+            }
+            long time = System.nanoTime() - start;
+            System.out.printf("Round %d: indexed %d programs in %d ms,"
+                            + " %.1f MiB, %d words%n", round,
+                    CHANNELS * DAYS * PROGRAMS_PER_DAY, time / 1_000_000,
+                    (usedHeap() - heap) / 1_048_576.0,
+                    index.getWordCount());
+        }
+
+        for (String query : QUERIES) {
+            int hits = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                hits = index.search(query, 200).size();
+            }
+            System.out.printf("Query \"%s\": %d hits, %.2f ms%n", query,
+                    hits, (System.nanoTime() - start) / 100 / 1e6);
+        }
+
+        listenerStress();
+    }
+
+    /**
+     * Put and invalidate the same channels from several threads with a
+     * listener that reads the cache, then check that the last change each
+     * channel delivered is what the cache holds.
+     *
+     * @throws InterruptedException If interrupted.
+     */
+    private static void listenerStress() throws InterruptedException {
+        ScheduleCache cache = new ScheduleCache(Long.MAX_VALUE,
+                Integer.MAX_VALUE);
+        Map<Integer, ProgramColumns> delivered = new ConcurrentHashMap<>();
+        AtomicLong deliveries = new AtomicLong();
+        cache.addListener((channelId, columns) -> {
+            cache.getStale(channelId);
+            deliveries.incrementAndGet();
+            if (columns == null) {
+                delivered.remove(channelId);
+            } else {
+                delivered.put(channelId, columns);
+            }
+        });
+
+        Thread[] threads = new Thread[STRESS_THREADS];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads.length; t++) {
+            Random random = new Random(t);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < STRESS_CHANGES; i++) {
+                    int channel = random.nextInt(STRESS_CHANNELS);
+                    if (random.nextInt(4) == 0) {
+                        cache.invalidate(channel);
+                    } else {
+                        cache.put(channel, List.of(program("p" + i,
+                                i, i + 1)), 0);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int wrong = 0;
+        for (int channel = 0; channel < STRESS_CHANNELS; channel++) {
+            List<Program> cached = cache.getStale(channel);
+            ProgramColumns last = delivered.get(channel);
+            if (cached == null ? last != null
+                    : last == null || cached != last.asList()) {
+                wrong++;
+            }
+        }
+        System.out.printf("%d threads, %d changes: %d delivered in %d ms,"
+                        + " %d channels out of date%n", STRESS_THREADS,
+                STRESS_THREADS * STRESS_CHANGES, deliveries.get(),
+                (System.nanoTime() - start) / 1_000_000, wrong);
+    }
+
+    /**
+     * Create a week of programs for each channel, drawn from a set of
+     * series with descriptions of Swedish words.
+     *
+     * @return Schedules keyed by channel id.
+     */
+    private static Map<Integer, ProgramColumns> schedules() {
+        Random random = new Random(11);
+        String[] vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int k = 2 + random.nextInt(3); k > 0; k--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        ScheduleInterner interner = new ScheduleInterner();
+        String[][] series = new String[SERIES][2];
+        for (String[] s : series) {
+            s[0] = words(random, vocabulary, 3);
+            s[1] = words(random, vocabulary, WORDS_PER_DESCRIPTION);
+        }
+
+        Map<Integer, ProgramColumns> schedules = new HashMap<>();
+        long slot = 24 * 3_600_000L / PROGRAMS_PER_DAY;
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            List<Program> programs = new ArrayList<>();
+            for (int i = 0; i < DAYS * PROGRAMS_PER_DAY; i++) {
+                String[] s = series[random.nextInt(SERIES)];
+                Program p = program(null, i * slot, (i + 1) * slot);
+                p.setSeries(interner.series(s[0], s[1], null));
+                programs.add(p);
+            }
+            schedules.put(channel, ProgramColumns.sortedByStart(programs));
+        }
+        return schedules;
+    }
+
+    /**
+     * Join random words.
+     *
+     * @param random     Source of randomness.
+     * @param vocabulary Words to pick from.
+     * @param count      Amount of words.
+     * @return Words separated by spaces.
+     */
+    private static String words(Random random, String[] vocabulary,
+                                int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Create a program.
+     *
+     * @param name  Title, or null.
+     * @param start Start time.
+     * @param end   End time.
+     * @return Program.
+     */
+    private static Program program(String name, long start, long end) {
+        Program p = new Program();
+        if (name != null) {
+            p.setName(name);
+        }
+        p.setStartTime(start);
+        p.setEndTime(end);
+        return p;
+    }
+
+    /**
+     * Get used heap after a collection.
+     *
+     * @return Used bytes.
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,123 @@
+package Bench;
+
+import Model.Program;
+import Model.ProgramColumns;
+import Model.ScheduleInterner;
+import Model.Series;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the heap held by schedules with and without shared series
+ * metadata. The same schedules are built with new strings for every
+ * episode, with series from ScheduleInterner, and as ProgramColumns as
+ * the cache keeps them.
+ * <p>
+ * Usage: java -cp out Bench.SeriesMemoryBench
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class SeriesMemoryBench {
+
+    private static final int CHANNELS = 50;
+    private static final int DAYS = 5;
+    private static final int PROGRAMS_PER_DAY = 40;
+    private static final int SERIES = 300;
+    private static final int DESCRIPTION_LENGTH = 250;
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Not used.
+     * @throws InterruptedException If interrupted while waiting for GC.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String[] descriptions = new String[SERIES];
+        Random random = new Random(3);
+        for (int i = 0; i < SERIES; i++) {
+            StringBuilder sb = new StringBuilder();
+            while (sb.length() < DESCRIPTION_LENGTH) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            descriptions[i] = sb.toString();
+        }
+
+        long heap = usedHeap();
+        List<List<Program>> fresh = schedules(descriptions, null);
+        long freshBytes = usedHeap() - heap;
+
+        heap = usedHeap();
+        List<List<Program>> interned = schedules(descriptions,
+                new ScheduleInterner());
+        long internedBytes = usedHeap() - heap;
+
+        heap = usedHeap();
+        List<ProgramColumns> columns = new ArrayList<>();
+        for (List<Program> schedule : interned) {
+            columns.add(ProgramColumns.sortedByStart(schedule));
+        }
+        long columnBytes = usedHeap() - heap;
+
+        int programs = CHANNELS * DAYS * PROGRAMS_PER_DAY;
+        System.out.printf("%d programs of %d series:%n", programs, SERIES);
+        System.out.printf("  new strings per episode  %.2f MiB%n",
+                freshBytes / 1_048_576.0);
+        System.out.printf("  interned series          %.2f MiB%n",
+                internedBytes / 1_048_576.0);
+        System.out.printf("  columns of the above     %.2f MiB more%n",
+                columnBytes / 1_048_576.0);
+        System.out.printf("  (%d schedules kept)%n",
+                fresh.size() + interned.size() + columns.size());
+    }
+
+    /**
+     * Build a schedule per channel.
+     *
+     * @param descriptions Description of each series.
+     * @param interner     Interner for shared series, null to give every
+     *                     episode its own copies of the strings.
+     * @return Schedules.
+     */
+    private static List<List<Program>> schedules(String[] descriptions,
+                                                 ScheduleInterner interner) {
+        Random random = new Random(5);
+        List<List<Program>> schedules = new ArrayList<>();
+        long slot = 24 * 3_600_000L / PROGRAMS_PER_DAY;
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            List<Program> schedule = new ArrayList<>();
+            for (int i = 0; i < DAYS * PROGRAMS_PER_DAY; i++) {
+                int s = random.nextInt(SERIES);
+                String name = new String("Program nummer " + s);
+                String description = new String(descriptions[s]);
+                String imageURL = new String(
+                        "https://static-cdn.sr.se/images/" + s + ".jpg");
+                Program p = new Program();
+                p.setSeries(interner == null
+                        ? new Series(name, description, imageURL)
+                        : interner.series(name, description, imageURL));
+                p.setStartTime(i * slot);
+                p.setEndTime((i + 1) * slot);
+                schedule.add(p);
+            }
+            schedules.add(schedule);
+        }
+        return schedules;
+    }
+
+    /**
+     * Get used heap after a few collections.
+     *
+     * @return Used bytes.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,194 @@
+package Bench;
+
+import Model.ScheduleInterner;
+import Model.StreamParser;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Compares the old DOM walk over a scheduledepisodes page with
+ * StreamParser. Prints time and allocated bytes per episode for a few
+ * rounds, the first ones are warm up.
+ * <p>
+ * Usage: java -cp out Bench.StreamParserBench [episodes per page]
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class StreamParserBench {
+
+    private static final int ROUNDS = 5;
+
+    /**
+     * Fields the old parser kept for each episode.
+     */
+    private static class OldProgram {
+        private String name;
+        private String description;
+        private String imageURL;
+        private Date start;
+        private Date end;
+    }
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Amount of episodes per page, 200 if left out.
+     * @throws Exception If parsing fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int episodes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        byte[] page = page(episodes);
+        StreamParser parser = new StreamParser(new ScheduleInterner());
+        int iterations = Math.max(20, 40_000 / episodes);
+        double total = (double) iterations * episodes;
+
+        System.out.printf("Page of %d episodes, %d KB%n", episodes,
+                page.length / 1024);
+        for (int round = 0; round < ROUNDS; round++) {
+            long count = 0;
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                count += parseDom(page);
+            }
+            long domTime = System.nanoTime() - start;
+            long domBytes = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                count += parser.parseSchedulePage(
+                        new ByteArrayInputStream(page), Long.MIN_VALUE,
+                        Long.MAX_VALUE).getPrograms().size();
+            }
+            long staxTime = System.nanoTime() - start;
+            long staxBytes = allocatedBytes() - allocated;
+
+            System.out.printf("Round %d: DOM %.2f us %.0f B, StAX %.2f us"
+                            + " %.0f B per episode (%d)%n", round,
+                    domTime / 1e3 / total, domBytes / total,
+                    staxTime / 1e3 / total, staxBytes / total, count);
+        }
+    }
+
+    /**
+     * Parse a page the way APIParser did before StreamParser: build a
+     * document and walk the children of each episode.
+     *
+     * @param page Page to parse.
+     * @return Amount of episodes.
+     * @throws Exception If parsing fails.
+     */
+    private static int parseDom(byte[] page) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(new ByteArrayInputStream(page));
+        NodeList totalPages = doc.getElementsByTagName("totalpages");
+        Integer.parseInt(totalPages.item(0).getChildNodes().item(0)
+                .getNodeValue());
+
+        NodeList schedule = doc.getElementsByTagName("scheduledepisode");
+        int count = 0;
+        for (int i = 0; i < schedule.getLength(); i++) {
+            OldProgram program = new OldProgram();
+            NodeList children = schedule.item(i).getChildNodes();
+            for (int k = 1; k < children.getLength() - 1; k++) {
+                Node value = children.item(k);
+                switch (value.getNodeName()) {
+                    case "title" ->
+                            program.name = value.getFirstChild()
+                                    .getNodeValue();
+                    case "starttimeutc" ->
+                            program.start = parseOldDate(value);
+                    case "endtimeutc" -> program.end = parseOldDate(value);
+                    case "description" -> {
+                        if (value.getFirstChild() != null) {
+                            program.description = value.getFirstChild()
+                                    .getNodeValue();
+                        }
+                    }
+                    case "imageurl" ->
+                            program.imageURL = value.getFirstChild()
+                                    .getNodeValue();
+                    default -> {
+                    }
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Parse a time with a new SimpleDateFormat, as the old parser did.
+     *
+     * @param value Element holding the time.
+     * @return Parsed time.
+     * @throws Exception If the time is malformed.
+     */
+    private static Date parseOldDate(Node value) throws Exception {
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'")
+                .parse(value.getFirstChild().getNodeValue());
+    }
+
+    /**
+     * Build a page in the format of the scheduledepisodes API.
+     *
+     * @param episodes Amount of episodes.
+     * @return Page as UTF-8.
+     */
+    private static byte[] page(int episodes) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<sr>\n")
+                .append("  <pagination>\n    <page>1</page>\n")
+                .append("    <totalpages>1</totalpages>\n")
+                .append("  </pagination>\n  <schedule>\n");
+        Random random = new Random(5);
+        long time = 1_700_000_000L;
+        for (int i = 0; i < episodes; i++) {
+            long start = time;
+            time += 60L * (10 + random.nextInt(50));
+            int series = random.nextInt(40);
+            sb.append("    <scheduledepisode>\n      <episodeid>")
+                    .append(1_000_000 + i).append("</episodeid>\n")
+                    .append("      <title>Program nummer ").append(series)
+                    .append("</title>\n      <description>En beskrivning")
+                    .append(" av avsnittet med svenska tecken åäö ")
+                    .append(series).append("</description>\n")
+                    .append("      <starttimeutc>")
+                    .append(Instant.ofEpochSecond(start))
+                    .append("</starttimeutc>\n      <endtimeutc>")
+                    .append(Instant.ofEpochSecond(time))
+                    .append("</endtimeutc>\n      <program id=\"")
+                    .append(series).append("\" name=\"Program nummer ")
+                    .append(series).append("\" />\n")
+                    .append("      <channel id=\"132\" name=\"P1\" />\n")
+                    .append("      <imageurl>https://static-cdn.sr.se/")
+                    .append("images/").append(series)
+                    .append("/a.jpg?preset=api-default-square")
+                    .append("</imageurl>\n    </scheduledepisode>\n");
+        }
+        sb.append("  </schedule>\n</sr>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get bytes allocated by this thread so far.
+     *
+     * @return Allocated bytes.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,93 @@
+package Bench;
+
+import Model.Program;
+import Model.ScheduleInterner;
+import View.ProgramModel;
+
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long the EDT is busy adding a schedule to a shown program
+ * table, one event per row with addProgram against one event with
+ * addPrograms. Prints both for a few rounds, the first ones are warm up.
+ * <p>
+ * Usage: java -cp out Bench.TableEventBench [rows]
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class TableEventBench {
+
+    private static final int ROUNDS = 8;
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Amount of rows, 5000 if left out.
+     * @throws InterruptedException      If interrupted.
+     * @throws InvocationTargetException If the EDT code fails.
+     */
+    public static void main(String[] args)
+            throws InterruptedException, InvocationTargetException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        List<Program> programs = programs(rows);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long[] times = new long[2];
+            SwingUtilities.invokeAndWait(() -> {
+                ProgramModel perRow = new ProgramModel();
+                shownTable(perRow);
+                long start = System.nanoTime();
+                for (Program p : programs) {
+                    perRow.addProgram(p);
+                }
+                times[0] = System.nanoTime() - start;
+
+                ProgramModel bulk = new ProgramModel();
+                shownTable(bulk);
+                start = System.nanoTime();
+                bulk.addPrograms(programs);
+                times[1] = System.nanoTime() - start;
+            });
+            System.out.printf("Round %d, %d rows: per row %.1f ms, bulk"
+                    + " %.2f ms%n", round, rows, times[0] / 1e6,
+                    times[1] / 1e6);
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Put a model in a laid out table, as in the program view.
+     *
+     * @param model Model to show.
+     */
+    private static void shownTable(ProgramModel model) {
+        JScrollPane scroller = new JScrollPane(new JTable(model));
+        scroller.setSize(800, 600);
+        scroller.doLayout();
+    }
+
+    /**
+     * Create programs ten minutes apart from 50 series.
+     *
+     * @param rows Amount of programs.
+     * @return Programs.
+     */
+    private static List<Program> programs(int rows) {
+        ScheduleInterner interner = new ScheduleInterner();
+        ArrayList<Program> programs = new ArrayList<>(rows);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < rows; i++) {
+            Program p = new Program();
+            p.setSeries(interner.series("Program " + i % 50,
+                    "Beskrivning", null));
+            p.setStartTime(time);
+            time += 600_000;
+            p.setEndTime(time);
+            programs.add(p);
+        }
+        return programs;
+    }
+}
@@ -0,0 +1,133 @@
+package Bench;
+
+import Model.TaskEngine;
+
+import javax.swing.*;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the task engine. Blocking SwingWorkers are started with the
+ * default SwingWorker executor and with TaskEngine, then many tasks are
+ * forked into a scope with few permits to see how many threads it uses.
+ * <p>
+ * Usage: java -cp out Bench.TaskEngineBench [workers]
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class TaskEngineBench {
+
+    private static final int ROUNDS = 3;
+    private static final int BLOCK_MILLIS = 50;
+    private static final int SCOPE_TASKS = 60;
+    private static final int SCOPE_PERMITS = 2;
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Amount of workers, 500 if left out.
+     * @throws Exception If a task fails or the run is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        scopeThreads(new TaskEngine());
+
+        TaskEngine engine = new TaskEngine();
+        for (int round = 0; round < ROUNDS; round++) {
+            CountDownLatch swingDone = new CountDownLatch(workers);
+            long start = System.nanoTime();
+            for (int i = 0; i < workers; i++) {
+                worker(swingDone).execute();
+            }
+            swingDone.await();
+            long swingTime = System.nanoTime() - start;
+
+            CountDownLatch engineDone = new CountDownLatch(workers);
+            start = System.nanoTime();
+            for (int i = 0; i < workers; i++) {
+                engine.execute(worker(engineDone));
+            }
+            engineDone.await();
+            long engineTime = System.nanoTime() - start;
+
+            System.out.printf("Round %d, %d workers blocking %d ms:"
+                            + " SwingWorker %d ms, TaskEngine %d ms, peak"
+                            + " %d threads%n", round, workers, BLOCK_MILLIS,
+                    swingTime / 1_000_000, engineTime / 1_000_000,
+                    ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Fork many short tasks into a scope with few permits and print the
+     * most platform threads alive and tasks running at once. Run on a
+     * fresh engine, so no idle pool threads are counted.
+     *
+     * @param engine Engine to open the scope on.
+     * @throws IOException        If a task fails.
+     * @throws XMLStreamException Not thrown by these tasks.
+     */
+    private static void scopeThreads(TaskEngine engine)
+            throws IOException, XMLStreamException {
+        int before = threadCount();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger maxThreads = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < SCOPE_TASKS; i++) {
+            int task = i;
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(),
+                        Math::max);
+                maxThreads.accumulateAndGet(threadCount(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+                return task;
+            });
+        }
+        try (TaskEngine.Scope scope = engine.openScope(SCOPE_PERMITS)) {
+            scope.forkAll(tasks);
+        }
+        System.out.printf("Scope of %d permits, %d tasks: %d threads"
+                        + " before, at most %d alive and %d running%n",
+                SCOPE_PERMITS, SCOPE_TASKS, before, maxThreads.get(),
+                maxRunning.get());
+    }
+
+    /**
+     * Get amount of live platform threads.
+     *
+     * @return Amount of threads.
+     */
+    private static int threadCount() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    /**
+     * Create a worker that blocks in the background.
+     *
+     * @param done Counted down when the worker is done.
+     * @return Worker.
+     */
+    private static SwingWorker<Void, Void> worker(CountDownLatch done) {
+        return new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws InterruptedException {
+                Thread.sleep(BLOCK_MILLIS);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                done.countDown();
+            }
+        };
+    }
+}
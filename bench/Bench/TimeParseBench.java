@@ -0,0 +1,113 @@
+package Bench;
+
+import Model.Program;
+
+import java.lang.management.ManagementFactory;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.TextStyle;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the old time handling, a new SimpleDateFormat per value and
+ * formatting through Date, with Program.parseUtc and Program.formatTime.
+ * Prints time and allocated bytes per value for a few rounds, the first
+ * ones are warm up.
+ * <p>
+ * Usage: java -cp out Bench.TimeParseBench
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class TimeParseBench {
+
+    private static final int ROUNDS = 5;
+    private static final int VALUES = 200_000;
+    private static final String API_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    /**
+     * Run benchmark.
+     *
+     * @param args Not used.
+     * @throws ParseException If a time is malformed.
+     */
+    public static void main(String[] args) throws ParseException {
+        String[] times = new String[VALUES];
+        Random random = new Random(1);
+        for (int i = 0; i < VALUES; i++) {
+            times[i] = Instant.ofEpochSecond(1_700_000_000L
+                    + random.nextInt(86_400 * 30)).toString();
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long sink = 0;
+
+            long start = System.nanoTime();
+            for (String time : times) {
+                sink += new SimpleDateFormat(API_FORMAT).parse(time)
+                        .getTime() & 1;
+            }
+            long oldParse = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (String time : times) {
+                sink += Program.parseUtc(time) & 1;
+            }
+            long newParse = System.nanoTime() - start;
+
+            long allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (String time : times) {
+                sink += oldFormat(new SimpleDateFormat(API_FORMAT)
+                        .parse(time)).length();
+            }
+            long oldBoth = System.nanoTime() - start;
+            long oldBytes = allocatedBytes() - allocated;
+
+            allocated = allocatedBytes();
+            start = System.nanoTime();
+            for (String time : times) {
+                sink += Program.formatTime(Program.parseUtc(time)).length();
+            }
+            long newBoth = System.nanoTime() - start;
+            long newBytes = allocatedBytes() - allocated;
+
+            System.out.printf("Round %d: parse %.0f -> %.0f ns, parse and"
+                            + " format %.0f -> %.0f ns, %d -> %d B per"
+                            + " value (%d)%n", round,
+                    oldParse / (double) VALUES, newParse / (double) VALUES,
+                    oldBoth / (double) VALUES, newBoth / (double) VALUES,
+                    oldBytes / VALUES, newBytes / VALUES, sink);
+        }
+    }
+
+    /**
+     * Format a time the way Program did before it kept epoch millis.
+     *
+     * @param time Time to format.
+     * @return Formatted time.
+     */
+    private static String oldFormat(Date time) {
+        LocalDateTime local = time.toInstant()
+                .atZone(ZoneId.systemDefault()).toLocalDateTime();
+        return local.getMonth().getDisplayName(TextStyle.FULL,
+                Locale.ENGLISH) + " " + local.getDayOfMonth() + "    "
+                + String.format("%02d", local.getHour() + 1) + " : "
+                + String.format("%02d", local.getMinute());
+    }
+
+    /**
+     * Get bytes allocated by this thread so far.
+     *
+     * @return Allocated bytes.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean)
+                ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+}
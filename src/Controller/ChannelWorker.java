@@ -4,11 +4,11 @@ import Model.Channel;
 import Model.Model;
 import View.ChannelModel;
 import View.UserInterface;
-import org.xml.sax.SAXException;
 
 import javax.swing.*;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 
@@ -37,20 +37,14 @@ public class ChannelWorker extends SwingWorker<String, Channel> {
         this.UI = UI;
         this.model = model;
         this.tableModel = UI.getChannelTableModel();
-        tableModel.clearChannelList();
         channelList = new ArrayList<>();
-        SwingUtilities.invokeLater( () -> {
-
-            UI.setUpdateButtonStatus(false);
-            UI.setDescriptionLabel("");
-            UI.setChannelPicture(null);
-            UI.setProgramPicture(null);
-        });
+        SwingUtilities.invokeLater(() -> UI.setUpdateButtonStatus(false));
 
     }
 
     /**
-     * Fetch list of channels.
+     * Fetch list of channels and publish them, then load logos with the
+     * visible rows first and update each row as its logo arrives.
      *
      * @return Null
      */
@@ -59,7 +53,7 @@ public class ChannelWorker extends SwingWorker<String, Channel> {
 
         try {
             channelList = model.getChannelList();
-        } catch (ParserConfigurationException | SAXException e) {
+        } catch (XMLStreamException e) {
             return "Problem vid hämtning av kanaler.";
         } catch (IOException ignored) {
         }
@@ -67,21 +61,55 @@ public class ChannelWorker extends SwingWorker<String, Channel> {
             return "Inga kanaler hittades, kontrollera din nätuppkoppling " +
                     "och försök igen.";
         }
-        for (Channel c : channelList) {
-            publish(c);
+        publish(channelList.toArray(new Channel[0]));
+
+        int[] visible = getVisibleRows();
+        try {
+            model.loadChannelImages(channelList, visible[0], visible[1],
+                    ch -> SwingUtilities.invokeLater(() -> {
+                        tableModel.channelUpdated(ch);
+                        starter.channelImageLoaded(ch);
+                    }));
+        } catch (IOException ignored) {
         }
         return null;
     }
 
     /**
-     * Add channels to channel table model.
+     * Get visible rows of the channel table from the EDT.
+     *
+     * @return First and last visible row.
+     */
+    private int[] getVisibleRows() {
+        int[] visible = new int[]{0, 0};
+        try {
+            SwingUtilities.invokeAndWait(() -> System.arraycopy(
+                    UI.getVisibleChannelRows(), 0, visible, 0, 2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException ignored) {
+        }
+        return visible;
+    }
+
+    /**
+     * Apply channels to channel table model as differences to the channels
+     * shown from before. All channels are published at once, so they
+     * arrive in one chunk. Description and pictures are cleared only if
+     * the selected channel is gone.
      *
      * @param channels List of channels.
      */
     @Override
     protected void process(List<Channel> channels) {
-        for (Channel ch : channels) {
-            tableModel.addChannel(ch);
+        if (channels.isEmpty()) {
+            return;
+        }
+        tableModel.applyChannels(channels);
+        if (UI.getSelectedRowInChannelTable() == -1) {
+            UI.setDescriptionLabel("");
+            UI.setChannelPicture(null);
+            UI.setProgramPicture(null);
         }
     }
 
@@ -107,6 +135,7 @@ public class ChannelWorker extends SwingWorker<String, Channel> {
         UI.setUpdateButtonStatus(true);
         starter.setParsing(false);
         starter.enableChannelTable();
+        model.prefetchSchedules();
     }
 
 }
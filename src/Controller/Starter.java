@@ -4,12 +4,13 @@ import Model.Channel;
 import Model.Program;
 import Model.Model;
 import View.UserInterface;
-import org.xml.sax.SAXException;
 
 import javax.swing.*;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.IOException;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -19,12 +20,22 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 public class Starter {
 
+    private static final int SELECTION_DELAY = 150;
+
     private UserInterface GUI;
 
     private final Model model;
 
     private Program program;
 
+    private Future<?> programImageLoad;
+
+    private Future<?> searchLoad;
+
+    private Timer selectionTimer;
+
+    private Channel selectedChannel;
+
     private final AtomicBoolean parsing;
 
     /**
@@ -42,8 +53,10 @@ public class Starter {
      */
     private void startProgram() {
         try {
+            ArrayList<Channel> saved = model.loadSnapshot();
             SwingUtilities.invokeAndWait(() -> {
                 GUI = new UserInterface();
+                GUI.getChannelTableModel().addChannels(saved);
                 GUI.setVisible();
             });
         } catch (InterruptedException e) {
@@ -54,6 +67,7 @@ public class Starter {
         startWorker();
         SwingUtilities.invokeLater(this::addListeners);
         model.loop();
+        model.startNowPlaying(GUI.getChannelTableModel());
 
     }
 
@@ -61,6 +75,10 @@ public class Starter {
      * Add listeners for GUI components.
      */
     private void addListeners() {
+        // Wait for selection to settle before loading programs.
+        selectionTimer = new Timer(SELECTION_DELAY, e -> loadPrograms());
+        selectionTimer.setRepeats(false);
+
         // Add selection listener to channel table.
         GUI.setChannelSelectionListener(this::buildChannelSelectionListener);
 
@@ -76,9 +94,39 @@ public class Starter {
                 program = GUI.getProgramTableModel().getProgramAt(selectedRow);
 
                 GUI.setDescriptionLabel(program.getDescription());
-                GUI.setProgramPicture(program.getImage());
+                showProgramImage(program);
+            }
+
+        });
+
+        // Search as the user types.
+        GUI.addSearchListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                search();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                search();
             }
+        });
+
+        // Add selection listener to search table.
+        GUI.setSearchSelectionListener(e -> {
+            int selectedRow = GUI.getSelectedRowInSearchTable();
+            if (e.getValueIsAdjusting() || selectedRow == -1) {
+                return;
+            }
+            program = GUI.getSearchTableModel().getProgramAt(selectedRow);
 
+            GUI.setDescriptionLabel(program.getDescription());
+            showProgramImage(program);
         });
 
         // Add listener for button.
@@ -89,34 +137,102 @@ public class Starter {
     }
 
     /**
-     * Build SelectionListener for channelTable.
+     * Show programs matching the search text. The search runs in the
+     * background, a search for earlier text is cancelled and its hits are
+     * not shown.
+     */
+    private void search() {
+
+        if (searchLoad != null) {
+            searchLoad.cancel(true);
+        }
+
+        String query = GUI.getSearchText();
+        searchLoad = model.search(query, hits -> {
+            if (query.equals(GUI.getSearchText())) {
+                GUI.getSearchTableModel().setHits(hits);
+            }
+        });
+    }
+
+    /**
+     * Show image of selected program, loading it in the background if
+     * needed. A load for an earlier selection is cancelled.
+     *
+     * @param selected Selected program.
+     */
+    private void showProgramImage(Program selected) {
+
+        if (programImageLoad != null) {
+            programImageLoad.cancel(true);
+            programImageLoad = null;
+        }
+
+        GUI.setProgramPicture(selected.getImage());
+        if (selected.getImage() != null || selected.getImageURL() == null) {
+            return;
+        }
+
+        programImageLoad = model.loadProgramImage(selected, image -> {
+            if (program == selected) {
+                GUI.setProgramPicture(image);
+            }
+        });
+    }
+
+    /**
+     * Build SelectionListener for channelTable. Programs are loaded when
+     * the selection has not changed for a short while. Events that keep
+     * the same channel selected, as when the channel list is refreshed,
+     * load nothing.
      *
      * @param e Event.
      */
     private void buildChannelSelectionListener(
             javax.swing.event.ListSelectionEvent e) {
-        if (e.getValueIsAdjusting()) {
-            GUI.setChannelTableEnabled(false);
-            int selectedRow = GUI.getSelectedRowInChannelTable();
+        int selectedRow = GUI.getSelectedRowInChannelTable();
 
-            if (selectedRow == -1) {
-                return;
-            }
+        if (selectedRow == -1) {
+            return;
+        }
 
-            Channel channel = GUI.getChannelTableModel().getChannelAt(selectedRow);
+        Channel channel = GUI.getChannelTableModel().getChannelAt(selectedRow);
+        boolean same = selectedChannel != null
+                && channel.getChannelId() == selectedChannel.getChannelId();
+        selectedChannel = channel;
+        if (same) {
+            return;
+        }
+        model.channelSelected(selectedRow, selectedChannel);
 
-            GUI.setChannelPicture(channel.getImage());
+        GUI.setChannelPicture(selectedChannel.getImage());
+        selectionTimer.restart();
+    }
 
-            try {
-                model.startWorker(channel, GUI.getProgramTableModel());
+    /**
+     * Load programs for the selected channel. Work for an earlier selection
+     * is cancelled by the model.
+     */
+    private void loadPrograms() {
 
-            } catch (IOException ignored) {
-            } catch (SAXException |
-                    ParserConfigurationException saxException) {
-                GUI.popUp("Problem vid hämtning av program.");
-            }
+        if (selectedChannel == null) {
+            return;
+        }
 
-            GUI.getProgramTableModel().clearProgramList();
+        GUI.getProgramTableModel().clearProgramList();
+        model.startWorker(selectedChannel, GUI.getProgramTableModel());
+    }
+
+    /**
+     * Show logo of channel if it is selected. Called when a logo has been
+     * loaded.
+     *
+     * @param channel Channel that got its logo.
+     */
+    public void channelImageLoaded(Channel channel) {
+        if (selectedChannel != null
+                && channel.getChannelId() == selectedChannel.getChannelId()) {
+            GUI.setChannelPicture(channel.getImage());
         }
     }
 
@@ -127,7 +243,7 @@ public class Starter {
 
         if (!parsing.get()) {
             parsing.set(true);
-            new ChannelWorker(GUI, model, this).execute();
+            model.execute(new ChannelWorker(GUI, model, this));
         }
 
     }
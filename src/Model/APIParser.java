@@ -1,23 +1,19 @@
 package Model;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
-import javax.imageio.ImageIO;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.awt.*;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLConnection;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 
 /**
  * Parse information from API.
@@ -26,291 +22,345 @@ import java.util.Date;
  */
 public class APIParser {
 
+    /**
+     * Default amount of channel logos fetched at the same time.
+     */
+    public static final int DEFAULT_IMAGE_REQUESTS = 8;
+
+    /**
+     * Default amount of schedule pages fetched at the same time.
+     */
+    public static final int DEFAULT_PAGE_REQUESTS = 6;
+
+    /**
+     * Default time before now that programs are fetched for.
+     */
+    public static final Duration DEFAULT_BEFORE = Duration.ofHours(2);
+
+    /**
+     * Default time after now that programs are fetched for.
+     */
+    public static final Duration DEFAULT_AFTER = Duration.ofHours(24);
+
     private ArrayList<Channel> channelList;
     private final String channelURL;
+    private final String rightNowURL;
+    private final int maxImageRequests;
+    private final int maxPageRequests;
+    private final List<String> failedImages;
+    private final StreamParser streamParser;
+    private final ScheduleInterner interner;
+    private final HttpTransport transport;
+    private final DiskImageCache diskCache;
+    private final ImageCache imageCache;
+    private final ImageDecoder imageDecoder;
+    private final TaskEngine engine;
+    private volatile Duration before;
+    private volatile Duration after;
 
-    public APIParser() {
+    /**
+     * Initialize parser.
+     *
+     * @param maxImageRequests Max amount of images fetched at the same time.
+     * @param maxPageRequests  Max amount of schedule pages fetched at the
+     *                         same time.
+     * @param imageCacheDir    Directory for the image cache.
+     * @param imageCacheBytes  Max size of the image cache in bytes.
+     * @param imageMemoryBytes Max decoded bytes of images kept in memory.
+     * @param engine           Engine that runs fetches.
+     */
+    public APIParser(int maxImageRequests, int maxPageRequests,
+                     Path imageCacheDir, long imageCacheBytes,
+                     long imageMemoryBytes, TaskEngine engine) {
+        this.engine = engine;
         channelList = new ArrayList<>();
         channelURL = "http://api.sr.se/api/v2/channels/?pagination=false";
+        rightNowURL = "http://api.sr.se/api/v2/scheduledepisodes/rightnow"
+                + "?size=100";
+        this.maxImageRequests = Math.max(1, maxImageRequests);
+        this.maxPageRequests = Math.max(1, maxPageRequests);
+        failedImages = Collections.synchronizedList(new ArrayList<>());
+        interner = new ScheduleInterner();
+        streamParser = new StreamParser(interner);
+        transport = new HttpTransport();
+        diskCache = new DiskImageCache(imageCacheDir, imageCacheBytes,
+                transport);
+        imageDecoder = new ImageDecoder();
+        before = DEFAULT_BEFORE;
+        after = DEFAULT_AFTER;
+        imageCache = new ImageCache(this::decodeImage, imageMemoryBytes);
     }
 
     /**
-     * Build a list of channels from API.
+     * Build a list of channels from API. Logos are not loaded, see
+     * loadChannelImages. Shared series are cleared, since this is a full
+     * refresh.
      *
      * @return List of channels.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        I/O error.
      */
     public ArrayList<Channel> buildChannelList()
-            throws IOException, SAXException, ParserConfigurationException {
-
-        channelList = new ArrayList<>();
-
-        Document doc = buildDocument(channelURL);
-
-        NodeList channelNodeList = doc.getElementsByTagName("channels");
+            throws IOException, XMLStreamException {
 
-        Node channels = channelNodeList.item(0);
-
-        addChannels(channels);
+        interner.clear();
+        channelList = new ArrayList<>(
+                transport.get(channelURL, "", streamParser::parseChannels));
 
         return channelList;
     }
 
     /**
-     * Loop to add channels
+     * Get table that parsed series are shared through.
      *
-     * @param channels channels node.
+     * @return Interning table.
      */
-    private void addChannels(Node channels) {
-
-        for (int i = 0; i < channels.getChildNodes().getLength(); i++) {
+    public ScheduleInterner getInterner() {
+        return interner;
+    }
 
-            Node currentNode = channels.getChildNodes().item(i);
+    /**
+     * Get the current and next program of all channels from the right now
+     * listing, without loading any schedule. Pages after the first are
+     * fetched concurrently.
+     *
+     * @return Now playing of all channels.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        I/O error.
+     */
+    public ArrayList<NowPlaying> parseRightNow()
+            throws IOException, XMLStreamException {
+
+        NowPlayingPage firstPage = transport.get(rightNowURL, "",
+                streamParser::parseRightNow);
+
+        ArrayList<Callable<NowPlayingPage>> pageTasks = new ArrayList<>();
+        for (int pageNum = 2; pageNum <= firstPage.getTotalPages();
+             pageNum++) {
+            String pageURL = rightNowURL + "&page=" + pageNum;
+            pageTasks.add(() -> transport.get(pageURL, "",
+                    streamParser::parseRightNow));
+        }
 
-            if (currentNode.getChildNodes().getLength() == 0) {
-                continue;
+        ArrayList<NowPlaying> nowPlaying = new ArrayList<>(
+                firstPage.getChannels());
+        try (TaskEngine.Scope scope = engine.openScope(maxPageRequests)) {
+            for (NowPlayingPage page : scope.forkAll(pageTasks)) {
+                nowPlaying.addAll(page.getChannels());
             }
-
-            int id = Integer.parseInt(currentNode.getAttributes()
-                    .getNamedItem("id").getNodeValue());
-
-            String name = currentNode.getAttributes()
-                    .getNamedItem("name").getNodeValue();
-
-            Channel ch = new Channel(id, name);
-
-            Node imageNode = currentNode.getFirstChild().getNextSibling();
-            String imageURL = imageNode.getFirstChild().getNodeValue();
-
-            Image image = parseImage(imageURL);
-
-            ch.setImage(image);
-
-            channelList.add(ch);
         }
+        return nowPlaying;
     }
 
     /**
-     * Make a list of programs for the channel parameter.
+     * Load channel logos concurrently, at most maxImageRequests at a time,
+     * starting in the given order. A failed logo is reported and left as
+     * null without failing the other logos.
      *
-     * @param channel Channel to add programs to.
-     * @return List of programs.
-     * @throws ParserConfigurationException Error while parsing.
-     * @throws SAXException                 Error while parsing.
-     * @throws IOException                  I/O error.
+     * @param channels Channels to load logos for, most wanted first.
+     * @param onLoaded Called with each channel when its logo is set, from
+     *                 the loading threads.
+     * @throws InterruptedIOException If interrupted while waiting.
      */
-    public ArrayList<Program> parsePrograms(Channel channel)
-            throws IOException, SAXException, ParserConfigurationException {
-
-        ArrayList<Program> programs = new ArrayList<>();
-
-        int totalPages;
-
-        String URLStart = "http://api.sr.se/api/v2/" +
-                "scheduledepisodes?channelid=";
-
-        for (int day = -1; day < 2; day++) {
-
-            String todayURL = URLStart + channel.getChannelId()
-                    + "&date=" + getDateString(day);
-
-            Document doc = buildDocument(todayURL);
-
-            NodeList totalpages = doc.getElementsByTagName("totalpages");
-
-            totalPages = Integer.parseInt(totalpages.item(0)
-                    .getChildNodes().item(0).getNodeValue());
-
-
-            for (int pageNum = 1; pageNum < totalPages; pageNum++) {
-
-                String currPageURL = URLStart + channel.getChannelId()
-                        + "&date=" + getDateString(day) + "&page=" + pageNum;
-
-                Document pageDoc = buildDocument(currPageURL);
-
-                NodeList schedule = pageDoc
-                        .getElementsByTagName("scheduledepisode");
-
-                for (int i = 1; i < schedule.getLength(); i++) {
+    public void loadChannelImages(List<Channel> channels,
+                                  Consumer<Channel> onLoaded)
+            throws InterruptedIOException {
 
-                    Node currentProgramNode = schedule.item(i);
-
-                    Program currentProgram;
+        failedImages.clear();
+        if (channels.isEmpty()) {
+            return;
+        }
 
-                    currentProgram = parseProgram(currentProgramNode);
-                    if (currentProgram == null) {
-                        continue;
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (Channel ch : channels) {
+            tasks.add(() -> {
+                try {
+                    if (ch.getImageURL() == null) {
+                        throw new IOException("Channel has no image.");
                     }
-
-                    programs.add(currentProgram);
+                    ch.setImage(parseImage(ch.getImageURL()));
+                    onLoaded.accept(ch);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    reportFailedImage(ch.getImageURL(), e);
                 }
+                return null;
+            });
+        }
 
-            }
+        try (TaskEngine.Scope scope = engine.openScope(maxImageRequests)) {
+            scope.forkAll(tasks);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException | XMLStreamException e) {
+            throw new IllegalStateException(e);
         }
-        return programs;
     }
 
     /**
-     * Parses information to create a program given a node.
+     * Remember and print an image that could not be fetched.
      *
-     * @param currentProgramNode Node containing information to build
-     *                           program from.
-     * @return Model.Program object.
+     * @param imageURL URL of the image.
+     * @param cause    Reason for the failure.
      */
-    private Program parseProgram(Node currentProgramNode) {
-
-        Program currentProgram = new Program();
-
-        int childNum = currentProgramNode.getChildNodes().getLength();
+    private void reportFailedImage(String imageURL, Throwable cause) {
+        failedImages.add(imageURL);
+        System.out.println("Could not load image " + imageURL + ": "
+                + cause.getMessage());
+    }
 
-        for (int i = 1; i < childNum - 1; i++) {
+    /**
+     * Get the shared in-memory image cache.
+     *
+     * @return Image cache.
+     */
+    public ImageCache getImageCache() {
+        return imageCache;
+    }
 
-            if (parseProgramInformation(currentProgramNode, currentProgram, i))
-                return null;
+    /**
+     * Get URLs of the logos that failed in the latest logo load.
+     *
+     * @return List of image URLs.
+     */
+    public List<String> getFailedImages() {
+        synchronized (failedImages) {
+            return new ArrayList<>(failedImages);
         }
-        return currentProgram;
     }
 
     /**
-     * Parse information for program.
+     * Set how far back and ahead of now programs are fetched.
      *
-     * @param currentProgramNode CurrentNode.
-     * @param currentProgram Program to create.
-     * @param i current loop index.
-     * @return If program was parsed correctly.
+     * @param before Time before now.
+     * @param after  Time after now.
      */
-    private boolean parseProgramInformation(Node currentProgramNode,
-                                            Program currentProgram, int i) {
-        Node value = currentProgramNode.getChildNodes().item(i);
-
-        switch (value.getNodeName()) {
-            case "title":
-                currentProgram.setName(value.getFirstChild().getNodeValue());
-
-                break;
-
-            case "starttimeutc":
-                if (startTimeCase(currentProgram, value)) return true;
+    public void setHorizon(Duration before, Duration after) {
+        this.before = before;
+        this.after = after;
+    }
 
-                break;
+    /**
+     * Make a list of programs for the channel parameter. Only dates within
+     * the horizon are fetched and programs outside of it are skipped while
+     * parsing. The first page of every date is fetched first to find the
+     * amount of pages, then the remaining pages of all dates are fetched
+     * concurrently. Each page is handed to the listener as soon as it is
+     * parsed, in whatever order the pages finish.
+     *
+     * @param channel Channel to add programs to.
+     * @param onPage  Called with the programs of each page, from the
+     *                fetching threads.
+     * @return List of programs in chronological order.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        I/O error.
+     */
+    public ArrayList<Program> parsePrograms(Channel channel,
+                                            Consumer<List<Program>> onPage)
+            throws IOException, XMLStreamException {
 
-            case "endtimeutc":
-                endTimeCase(currentProgram, value);
+        // Whole hours, so a revalidated page parsed within the same hour
+        // can be reused.
+        long hour = Duration.ofHours(1).toMillis();
+        long now = System.currentTimeMillis();
+        long from = Math.floorDiv(now - before.toMillis(), hour) * hour;
+        long to = -Math.floorDiv(-(now + after.toMillis()), hour) * hour;
 
-                break;
+        String URLStart = "http://api.sr.se/api/v2/" +
+                "scheduledepisodes?channelid=";
 
-            case "description":
-                if (value.getFirstChild() == null) {
-                    break;
-                }
-                String desc = value.getFirstChild().getNodeValue();
-                currentProgram.setDescription(desc);
+        ZoneId zone = Program.ZONE;
+        LocalDate lastDate = Instant.ofEpochMilli(to).atZone(zone)
+                .toLocalDate();
+        ArrayList<String> dayURLs = new ArrayList<>();
+        for (LocalDate date = Instant.ofEpochMilli(from).atZone(zone)
+                .toLocalDate(); !date.isAfter(lastDate);
+             date = date.plusDays(1)) {
+            dayURLs.add(URLStart + channel.getChannelId()
+                    + "&date=" + date);
+        }
 
-                break;
+        ArrayList<Callable<SchedulePage>> firstPageTasks = new ArrayList<>();
+        for (String dayURL : dayURLs) {
+            firstPageTasks.add(() -> parsePage(dayURL, from, to, onPage));
+        }
+        try (TaskEngine.Scope scope = engine.openScope(maxPageRequests)) {
+            List<SchedulePage> firstPages = scope.forkAll(firstPageTasks);
 
-            case "imageurl":
-                String imageURL = value.getFirstChild().getNodeValue();
-                currentProgram.setImage(parseImage(imageURL));
+            // Remaining pages for all days, in day and page order.
+            ArrayList<Callable<SchedulePage>> pageTasks = new ArrayList<>();
+            for (int day = 0; day < dayURLs.size(); day++) {
 
-                break;
+                int totalPages = firstPages.get(day).getTotalPages();
 
-            default:
-                break;
-        }
-        return false;
-    }
+                for (int pageNum = 2; pageNum <= totalPages; pageNum++) {
+                    String currPageURL = dayURLs.get(day) + "&page=" + pageNum;
+                    pageTasks.add(() -> parsePage(currPageURL, from, to,
+                            onPage));
+                }
+            }
+            List<SchedulePage> pages = scope.forkAll(pageTasks);
 
-    private void endTimeCase(Program currentProgram, Node value) {
-        String endTime = value.getFirstChild().getNodeValue();
-        Date endDate = null;
-        try {
-            endDate = new SimpleDateFormat(
-                    "yyyy-MM-dd'T'HH:mm:ss'Z'").parse(endTime);
+            ArrayList<Program> programs = new ArrayList<>();
+            int pageIndex = 0;
+            for (SchedulePage firstPage : firstPages) {
 
-        } catch (ParseException ignored) {
-        }
-        currentProgram.setEndTime(endDate);
-    }
+                programs.addAll(firstPage.getPrograms());
 
-    private boolean startTimeCase(Program currentProgram, Node value) {
-        String startTime = value.getFirstChild().getNodeValue();
-        Date startDate = null;
-        try {
-            startDate = new SimpleDateFormat(
-                    "yyyy-MM-dd'T'HH:mm:ss'Z'").parse(startTime);
-            long currTime = new Date().getTime();
-            int halfADay = 1000 * 60 * 60 * 12;
-            if (Math.abs(currTime - startDate.getTime()) > halfADay) {
-                return true;
+                for (int i = 1; i < firstPage.getTotalPages(); i++) {
+                    programs.addAll(pages.get(pageIndex++).getPrograms());
+                }
             }
-        } catch (ParseException ignored) {
+            return programs;
         }
-        currentProgram.setStartTime(startDate);
-        return false;
     }
 
     /**
-     * Creates string from given day.
+     * Fetch and parse one page of scheduled episodes.
      *
-     * @param day Day to create string from ???
-     * @return String formatted to date.
+     * @param url    URL of the page.
+     * @param from   Start of horizon in epoch millis.
+     * @param to     End of horizon in epoch millis.
+     * @param onPage Called with the programs of the page.
+     * @return Parsed page.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        I/O error.
      */
-    private String getDateString(int day) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DATE, day);
-
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        Date relativeDay = calendar.getTime();
-
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
-
-        return format.format(relativeDay);
+    private SchedulePage parsePage(String url, long from, long to,
+                                   Consumer<List<Program>> onPage)
+            throws IOException, XMLStreamException {
+
+        SchedulePage page = transport.get(url, from + "-" + to,
+                in -> streamParser.parseSchedulePage(in, from, to));
+        if (!page.getPrograms().isEmpty()) {
+            onPage.accept(page.getPrograms());
+        }
+        return page;
     }
 
     /**
-     * Reads image from given URL parameter.
+     * Get image for the given URL parameter. Programs and channels with the
+     * same URL share one decoded image.
      *
      * @param imageURL URL to the image to read.
      * @return Image of the channel logo.
+     * @throws IOException If the image could not be read.
      */
-    private Image parseImage(String imageURL) {
-        Image image = null;
-
-        try {
-            URL url = new URL(imageURL);
-            image = ImageIO.read(url);
-        } catch (IOException ignored) {
-        }
-        return image;
+    public Image parseImage(String imageURL) throws IOException {
+        return imageCache.get(imageURL);
     }
 
     /**
-     * Builds document using the given url parameter.
+     * Reads and decodes image from given URL parameter, scaled to the size
+     * it is shown in.
      *
-     * @param url URL to build document from.
-     * @return Built document.
-     * @throws ParserConfigurationException Error while parsing.
-     * @throws SAXException                 Error while parsing.
-     * @throws IOException                  I/O error.
+     * @param imageURL URL to the image to read.
+     * @return Decoded image.
+     * @throws IOException If the image could not be read.
      */
-    private Document buildDocument(String url)
-            throws ParserConfigurationException, IOException, SAXException {
-
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-
-        URLConnection connection = new URL(url).openConnection();
-
-        connection.addRequestProperty("Accept", "application/xml");
-
-        Document doc = builder.parse(connection.getInputStream());
-
-        doc.getDocumentElement().normalize();
-
-        return doc;
+    private Image decodeImage(String imageURL) throws IOException {
+        return imageDecoder.decode(diskCache.get(imageURL));
     }
 
 }
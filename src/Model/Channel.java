@@ -18,6 +18,8 @@ public class Channel {
 
     private Image image;
 
+    private String imageURL;
+
     /**
      * Create channel.
      *
@@ -57,6 +59,24 @@ public class Channel {
         this.image = image;
     }
 
+    /**
+     * Get URL of channel logo.
+     *
+     * @return URL of logo, null if channel has none.
+     */
+    public String getImageURL() {
+        return imageURL;
+    }
+
+    /**
+     * Set URL of channel logo.
+     *
+     * @param imageURL URL of logo.
+     */
+    public void setImageURL(String imageURL) {
+        this.imageURL = imageURL;
+    }
+
     /**
      * Get list of programs.
      *
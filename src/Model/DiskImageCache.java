@@ -0,0 +1,342 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Properties;
+
+/**
+ * Persistent image cache on disk. Files are named by the SHA-256 hash of
+ * their URL, written atomically and evicted least recently used first when
+ * the cache grows over its byte budget. Entries older than the freshness
+ * time are revalidated with the server before use.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class DiskImageCache {
+
+    /**
+     * Default size of the cache in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final Duration FRESH_FOR = Duration.ofHours(24);
+
+    private final Path dir;
+    private final long maxBytes;
+    private final HttpTransport transport;
+    private final boolean enabled;
+    private long size;
+
+    /**
+     * Initialize cache. If the directory can not be created the cache is
+     * disabled and every image is downloaded.
+     *
+     * @param dir       Directory to store images in.
+     * @param maxBytes  Max total size of stored images.
+     * @param transport Transport used for downloads.
+     */
+    public DiskImageCache(Path dir, long maxBytes, HttpTransport transport) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.transport = transport;
+
+        boolean created;
+        try {
+            Files.createDirectories(dir);
+            removeLeftovers();
+            created = true;
+        } catch (IOException e) {
+            System.out.println("Image cache disabled: " + e.getMessage());
+            created = false;
+        }
+        enabled = created;
+        size = -1;
+    }
+
+    /**
+     * Get image bytes for URL, from disk if possible.
+     *
+     * @param url URL of image.
+     * @return Image bytes.
+     * @throws IOException If the image could not be read or downloaded.
+     */
+    public byte[] get(String url) throws IOException {
+
+        if (!enabled) {
+            return transport.download(url, null, null).getBody();
+        }
+
+        String key = key(url);
+        Path image = dir.resolve(key + ".img");
+        Path meta = dir.resolve(key + ".meta");
+
+        Properties props = readMeta(meta);
+        byte[] stored = props == null ? null : readImage(image);
+        if (stored == null) {
+            props = null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (stored != null && now - Long.parseLong(props.getProperty(
+                "fetched", "0")) < FRESH_FOR.toMillis()) {
+            touch(image, now);
+            return stored;
+        }
+
+        HttpTransport.Download download;
+        try {
+            download = transport.download(url,
+                    props == null ? null : props.getProperty("etag"),
+                    props == null ? null : props.getProperty("lastmodified"));
+        } catch (IOException e) {
+            if (stored != null) {
+                // Stale copy is better than nothing while offline.
+                return stored;
+            }
+            throw e;
+        }
+
+        Properties newProps = new Properties();
+        newProps.setProperty("url", url);
+        newProps.setProperty("fetched", Long.toString(now));
+        if (download.getETag() != null) {
+            newProps.setProperty("etag", download.getETag());
+        }
+        if (download.getLastModified() != null) {
+            newProps.setProperty("lastmodified", download.getLastModified());
+        }
+
+        if (download.isNotModified() && stored != null) {
+            writeMeta(meta, newProps);
+            touch(image, now);
+            return stored;
+        }
+
+        byte[] body = download.getBody();
+        // Image first, meta last: an entry without meta is never read.
+        writeAtomically(image, body);
+        writeMeta(meta, newProps);
+        added(body.length, stored == null ? 0 : stored.length);
+        return body;
+    }
+
+    /**
+     * Track added bytes and evict if over budget.
+     *
+     * @param added   Bytes written.
+     * @param removed Bytes replaced.
+     */
+    private synchronized void added(long added, long removed) {
+        if (size < 0) {
+            size = 0;
+            for (Path p : listImages()) {
+                size += sizeOf(p);
+            }
+        } else {
+            size += added - removed;
+        }
+        if (size > maxBytes) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove least recently used images until under the byte budget.
+     */
+    private void evict() {
+        ArrayList<Path> images = listImages();
+        images.sort(Comparator.comparingLong(DiskImageCache::lastUsed));
+
+        for (Path p : images) {
+            if (size <= maxBytes) {
+                break;
+            }
+            long bytes = sizeOf(p);
+            String name = p.getFileName().toString();
+            try {
+                Files.deleteIfExists(dir.resolve(name.substring(
+                        0, name.length() - ".img".length()) + ".meta"));
+                Files.deleteIfExists(p);
+                size -= bytes;
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * List stored images.
+     *
+     * @return Paths of image files.
+     */
+    private ArrayList<Path> listImages() {
+        ArrayList<Path> images = new ArrayList<>();
+        try (DirectoryStream<Path> stream =
+                     Files.newDirectoryStream(dir, "*.img")) {
+            for (Path p : stream) {
+                images.add(p);
+            }
+        } catch (IOException ignored) {
+        }
+        return images;
+    }
+
+    /**
+     * Remove temp files from writes that never finished.
+     *
+     * @throws IOException If the directory can not be listed.
+     */
+    private void removeLeftovers() throws IOException {
+        try (DirectoryStream<Path> stream =
+                     Files.newDirectoryStream(dir, "*.tmp")) {
+            for (Path p : stream) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    /**
+     * Read meta data of an entry.
+     *
+     * @param meta Path of meta file.
+     * @return Properties, or null if missing or unreadable.
+     */
+    private Properties readMeta(Path meta) {
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            props.load(in);
+            Long.parseLong(props.getProperty("fetched", "0"));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+        return props;
+    }
+
+    /**
+     * Read stored image bytes.
+     *
+     * @param image Path of image file.
+     * @return Bytes, or null if missing or unreadable.
+     */
+    private byte[] readImage(Path image) {
+        try {
+            return Files.readAllBytes(image);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Write meta data of an entry.
+     *
+     * @param meta  Path of meta file.
+     * @param props Properties to write.
+     * @throws IOException If writing failed.
+     */
+    private void writeMeta(Path meta, Properties props) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        props.store(out, null);
+        writeAtomically(meta, out.toByteArray());
+    }
+
+    /**
+     * Write to a temp file and move it in place so readers never see a half
+     * written file.
+     *
+     * @param target Final path.
+     * @param bytes  Bytes to write.
+     * @throws IOException If writing failed.
+     */
+    private void writeAtomically(Path target, byte[] bytes)
+            throws IOException {
+
+        Path tmp = Files.createTempFile(dir, "write", ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                out.write(bytes);
+            }
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Mark file as used now.
+     *
+     * @param p   File.
+     * @param now Current time in millis.
+     */
+    private static void touch(Path p, long now) {
+        try {
+            Files.setLastModifiedTime(p, FileTime.fromMillis(now));
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Get time the file was last used.
+     *
+     * @param p File.
+     * @return Time in millis, 0 if unknown.
+     */
+    private static long lastUsed(Path p) {
+        try {
+            return Files.getLastModifiedTime(p).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Get size of file.
+     *
+     * @param p File.
+     * @return Size in bytes, 0 if unknown.
+     */
+    private static long sizeOf(Path p) {
+        try {
+            return Files.size(p);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Create file name key from URL.
+     *
+     * @param url URL.
+     * @return Hex encoded SHA-256 of the URL.
+     */
+    private static String key(String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hash) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package Model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP transport for the API. Reuses connections, asks for gzip and
+ * revalidates earlier responses with ETag/Last-Modified so a 304 can reuse
+ * the already parsed result. The body is kept as received, so a 304 for a
+ * URL parsed in another way is parsed again from memory instead of being
+ * downloaded. Only the most recently used responses are kept.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class HttpTransport {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20);
+
+    /**
+     * Max amount of parsed responses kept for revalidation. Schedule URLs
+     * contain the date, so without a bound every day would add entries.
+     */
+    public static final int MAX_CACHED_RESPONSES = 256;
+
+    private final HttpClient client;
+    private final Map<String, CachedResponse> cache;
+
+    /**
+     * Parses the body of a response.
+     *
+     * @param <T> Type of the parsed result.
+     */
+    @FunctionalInterface
+    public interface ResponseParser<T> {
+
+        /**
+         * Parse body.
+         *
+         * @param in Decoded response body.
+         * @return Parsed result.
+         * @throws IOException        I/O error.
+         * @throws XMLStreamException Error while parsing.
+         */
+        T parse(InputStream in) throws IOException, XMLStreamException;
+    }
+
+    /**
+     * Validators, body and parsed result of an earlier response.
+     */
+    private static class CachedResponse {
+        private final String key;
+        private final String eTag;
+        private final String lastModified;
+        private final byte[] body;
+        private final boolean gzip;
+        private final Object value;
+
+        private CachedResponse(String key, String eTag, String lastModified,
+                               byte[] body, boolean gzip, Object value) {
+            this.key = key;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.gzip = gzip;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Result of a conditional download.
+     */
+    public static class Download {
+        private final boolean notModified;
+        private final byte[] body;
+        private final String eTag;
+        private final String lastModified;
+
+        private Download(boolean notModified, byte[] body, String eTag,
+                         String lastModified) {
+            this.notModified = notModified;
+            this.body = body;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Check if server answered 304.
+         *
+         * @return True if the earlier copy is still valid.
+         */
+        public boolean isNotModified() {
+            return notModified;
+        }
+
+        /**
+         * Get body of a 200 response.
+         *
+         * @return Body, null on 304.
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * Get ETag of the response.
+         *
+         * @return ETag, null if missing.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Get Last-Modified of the response.
+         *
+         * @return Last-Modified, null if missing.
+         */
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Initialize transport.
+     */
+    public HttpTransport() {
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build();
+        cache = Collections.synchronizedMap(
+                new LinkedHashMap<>(64, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, CachedResponse> eldest) {
+                        return size() > MAX_CACHED_RESPONSES;
+                    }
+                });
+    }
+
+    /**
+     * Get and parse the given URL. If an earlier response for the URL had
+     * validators they are sent along. On 304 the earlier parsed result is
+     * returned if it was parsed with the same key, otherwise the kept body
+     * is parsed again.
+     *
+     * @param url    URL to get.
+     * @param key    Identifies how the body is parsed, a parsed result is
+     *               only reused for the same key.
+     * @param parser Parser for the body.
+     * @param <T>    Type of the parsed result.
+     * @return Parsed result.
+     * @throws IOException        I/O error or bad status.
+     * @throws XMLStreamException Error while parsing.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String url, String key, ResponseParser<T> parser)
+            throws IOException, XMLStreamException {
+
+        CachedResponse cached = cache.get(url);
+
+        HttpRequest.Builder request = newRequest(url)
+                .header("Accept", "application/xml");
+        if (cached != null && cached.eTag != null) {
+            request.header("If-None-Match", cached.eTag);
+        }
+        if (cached != null && cached.lastModified != null) {
+            request.header("If-Modified-Since", cached.lastModified);
+        }
+
+        HttpResponse<InputStream> response = send(request.build());
+
+        if (response.statusCode() == 304 && cached != null) {
+            response.body().close();
+            if (cached.key.equals(key)) {
+                return (T) cached.value;
+            }
+            T value = parse(cached.body, cached.gzip, parser);
+            cache.put(url, new CachedResponse(key, cached.eTag,
+                    cached.lastModified, cached.body, cached.gzip, value));
+            return value;
+        }
+
+        byte[] body;
+        try (InputStream in = checkStatus(response)) {
+            body = in.readAllBytes();
+        }
+        boolean gzip = isGzip(response);
+        T value = parse(body, gzip, parser);
+
+        String eTag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers()
+                .firstValue("Last-Modified").orElse(null);
+        if (eTag != null || lastModified != null) {
+            cache.put(url, new CachedResponse(key, eTag, lastModified, body,
+                    gzip, value));
+        } else {
+            cache.remove(url);
+        }
+        return value;
+    }
+
+    /**
+     * Parse a body kept in memory.
+     *
+     * @param body   Body as received.
+     * @param gzip   True if the body is gzipped.
+     * @param parser Parser for the body.
+     * @param <T>    Type of the parsed result.
+     * @return Parsed result.
+     * @throws IOException        If the body can not be unzipped.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private <T> T parse(byte[] body, boolean gzip, ResponseParser<T> parser)
+            throws IOException, XMLStreamException {
+
+        InputStream raw = new ByteArrayInputStream(body);
+        try (InputStream in = gzip ? new GZIPInputStream(raw) : raw) {
+            return parser.parse(in);
+        }
+    }
+
+    /**
+     * Download the given URL, sending the given validators if any.
+     *
+     * @param url          URL to get.
+     * @param eTag         ETag of the earlier copy, or null.
+     * @param lastModified Last-Modified of the earlier copy, or null.
+     * @return Download, either 304 or with a body.
+     * @throws IOException I/O error or bad status.
+     */
+    public Download download(String url, String eTag, String lastModified)
+            throws IOException {
+
+        HttpRequest.Builder request = newRequest(url);
+        if (eTag != null) {
+            request.header("If-None-Match", eTag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        HttpResponse<InputStream> response = send(request.build());
+        String newETag = response.headers().firstValue("ETag").orElse(eTag);
+        String newLastModified = response.headers()
+                .firstValue("Last-Modified").orElse(lastModified);
+
+        if (response.statusCode() == 304
+                && (eTag != null || lastModified != null)) {
+            response.body().close();
+            return new Download(true, null, newETag, newLastModified);
+        }
+
+        try (InputStream in = body(response)) {
+            return new Download(false, in.readAllBytes(), newETag,
+                    newLastModified);
+        }
+    }
+
+    /**
+     * Build a GET request with common headers.
+     *
+     * @param url URL to get.
+     * @return Request builder.
+     * @throws IOException If the URL is malformed.
+     */
+    private HttpRequest.Builder newRequest(String url) throws IOException {
+        try {
+            return HttpRequest.newBuilder(URI.create(url))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Accept-Encoding", "gzip")
+                    .GET();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad URL: " + url, e);
+        }
+    }
+
+    /**
+     * Send request and wait for the response headers.
+     *
+     * @param request Request to send.
+     * @return Response with an unread body.
+     * @throws IOException I/O error or interrupted.
+     */
+    private HttpResponse<InputStream> send(HttpRequest request)
+            throws IOException {
+        try {
+            return client.send(request,
+                    HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request was interrupted.");
+        }
+    }
+
+    /**
+     * Get the body of a successful response as received.
+     *
+     * @param response Response.
+     * @return Body, still gzipped if it was sent so.
+     * @throws IOException If status is not 200.
+     */
+    private InputStream checkStatus(HttpResponse<InputStream> response)
+            throws IOException {
+
+        InputStream in = response.body();
+        if (response.statusCode() != 200) {
+            in.close();
+            throw new IOException("HTTP " + response.statusCode() + " for "
+                    + response.uri());
+        }
+        return in;
+    }
+
+    /**
+     * Check if the body of a response is gzipped.
+     *
+     * @param response Response.
+     * @return True if gzipped.
+     */
+    private boolean isGzip(HttpResponse<InputStream> response) {
+        return response.headers().firstValue("Content-Encoding").orElse("")
+                .equalsIgnoreCase("gzip");
+    }
+
+    /**
+     * Get the decoded body of a successful response.
+     *
+     * @param response Response.
+     * @return Body, unzipped if needed.
+     * @throws IOException If status is not 200 or body is unreadable.
+     */
+    private InputStream body(HttpResponse<InputStream> response)
+            throws IOException {
+
+        InputStream in = checkStatus(response);
+        if (isGzip(response)) {
+            return new GZIPInputStream(in);
+        }
+        return in;
+    }
+}
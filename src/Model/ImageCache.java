@@ -0,0 +1,213 @@
+package Model;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process wide in-memory cache of decoded images keyed by URL. Concurrent
+ * loads of the same URL share one load, and the least recently used images
+ * are dropped when the decoded pixel bytes go over the budget.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ImageCache {
+
+    /**
+     * Default budget of decoded pixel bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final LinkedHashMap<String, Image> images;
+    private final Map<String, CompletableFuture<Image>> loading;
+    private final ImageLoader loader;
+    private final long maxBytes;
+    private long bytes;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    /**
+     * Loads an image that is not in the cache.
+     */
+    @FunctionalInterface
+    public interface ImageLoader {
+
+        /**
+         * Load image.
+         *
+         * @param url URL of image.
+         * @return Decoded image, never null.
+         * @throws IOException If the image could not be loaded.
+         */
+        Image load(String url) throws IOException;
+    }
+
+    /**
+     * Initialize cache.
+     *
+     * @param loader   Loader for images not in the cache.
+     * @param maxBytes Budget of decoded pixel bytes.
+     */
+    public ImageCache(ImageLoader loader, long maxBytes) {
+        this.loader = loader;
+        this.maxBytes = maxBytes;
+        images = new LinkedHashMap<>(64, 0.75f, true);
+        loading = new ConcurrentHashMap<>();
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+    }
+
+    /**
+     * Get image for URL, loading it if not cached.
+     *
+     * @param url URL of image.
+     * @return Image.
+     * @throws IOException If the image could not be loaded.
+     */
+    public Image get(String url) throws IOException {
+
+        synchronized (this) {
+            Image image = images.get(url);
+            if (image != null) {
+                hits.incrementAndGet();
+                return image;
+            }
+        }
+        misses.incrementAndGet();
+
+        while (true) {
+            CompletableFuture<Image> created = new CompletableFuture<>();
+            CompletableFuture<Image> running = loading.putIfAbsent(url,
+                    created);
+
+            if (running == null) {
+                return load(url, created);
+            }
+
+            try {
+                return running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(
+                        "Image load was interrupted.");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                // The other load was cancelled, not us, so try again.
+                if (cause instanceof InterruptedIOException
+                        && !Thread.currentThread().isInterrupted()) {
+                    continue;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Run a load that this thread owns and share the result. A failed load
+     * is removed before waiters are told, so they can start a new one.
+     *
+     * @param url    URL of image.
+     * @param future Future others wait on.
+     * @return Image.
+     * @throws IOException If the image could not be loaded.
+     */
+    private Image load(String url, CompletableFuture<Image> future)
+            throws IOException {
+        try {
+            Image image = loader.load(url);
+            put(url, image);
+            loading.remove(url, future);
+            future.complete(image);
+            return image;
+        } catch (IOException | RuntimeException e) {
+            loading.remove(url, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Add image and evict least recently used images if over budget.
+     *
+     * @param url   URL of image.
+     * @param image Image to add.
+     */
+    private synchronized void put(String url, Image image) {
+        Image old = images.put(url, image);
+        if (old != null) {
+            bytes -= sizeOf(old);
+        }
+        bytes += sizeOf(image);
+
+        Iterator<Map.Entry<String, Image>> it = images.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Image> eldest = it.next();
+            if (eldest.getKey().equals(url)) {
+                continue;
+            }
+            bytes -= sizeOf(eldest.getValue());
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get decoded size of image.
+     *
+     * @param image Image.
+     * @return Size in bytes, assuming four bytes per pixel.
+     */
+    private static long sizeOf(Image image) {
+        return 4L * Math.max(0, image.getWidth(null))
+                * Math.max(0, image.getHeight(null));
+    }
+
+    /**
+     * Get amount of lookups served from the cache.
+     *
+     * @return Amount of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get amount of lookups that had to load or wait for a load.
+     *
+     * @return Amount of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get amount of images dropped to stay within budget.
+     *
+     * @return Amount of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get decoded pixel bytes held by the cache.
+     *
+     * @return Bytes held.
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,105 @@
+package Model;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Decodes images straight to the size they are shown in. Large images are
+ * subsampled while decoding and then resized once with high quality.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ImageDecoder {
+
+    /**
+     * Width and height images are shown in.
+     */
+    public static final int DISPLAY_SIZE = 300;
+
+    private final int size;
+
+    /**
+     * Initialize decoder for the default display size.
+     */
+    public ImageDecoder() {
+        this(DISPLAY_SIZE);
+    }
+
+    /**
+     * Initialize decoder.
+     *
+     * @param size Width and height of decoded images.
+     */
+    public ImageDecoder(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Decode image bytes to a size x size image.
+     *
+     * @param bytes Encoded image.
+     * @return Decoded image.
+     * @throws IOException If the image can not be decoded.
+     */
+    public BufferedImage decode(byte[] bytes) throws IOException {
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(bytes))) {
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Unknown image format.");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                // Subsample as far as possible without going under size.
+                int step = Math.max(1, Math.min(width / size, height / size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                return resize(reader.read(0, param));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Resize image to size x size.
+     *
+     * @param source Image to resize.
+     * @return Resized image.
+     */
+    private BufferedImage resize(BufferedImage source) {
+
+        if (source.getWidth() == size && source.getHeight() == size
+                && source.getType() == BufferedImage.TYPE_INT_ARGB) {
+            return source;
+        }
+
+        BufferedImage target = new BufferedImage(size, size,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING,
+                RenderingHints.VALUE_RENDER_QUALITY);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+        g.drawImage(source, 0, 0, size, size, null);
+        g.dispose();
+        return target;
+    }
+}
@@ -2,14 +2,22 @@ package Model;
 
 
 import Controller.Starter;
+import View.ChannelModel;
 import View.ProgramModel;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.ParserConfigurationException;
+import javax.swing.*;
+import javax.xml.stream.XMLStreamException;
+import java.awt.*;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Business logic of program.
@@ -18,8 +26,36 @@ import java.util.TimerTask;
  */
 public class Model {
 
+    /**
+     * Time between refreshes, also how long a schedule is fresh.
+     */
+    public static final int REFRESH_PERIOD = 1000 * 60 * 60;
+
+    /**
+     * Max amount of search results.
+     */
+    public static final int SEARCH_LIMIT = 200;
+
+    /**
+     * Milliseconds to wait before writing the snapshot, so that several
+     * loads close in time are saved with one write.
+     */
+    public static final int SNAPSHOT_DELAY = 2000;
+
     private final APIParser parser;
     private final Starter starter;
+    private final TaskEngine engine;
+    private final ScheduleSnapshot snapshot;
+    private final ScheduleCache scheduleCache;
+    private final ProgramSearchIndex searchIndex;
+    private final SchedulePrefetcher prefetcher;
+    private final RefreshScheduler refresher;
+    private final AtomicBoolean snapshotPending = new AtomicBoolean();
+    private volatile ArrayList<Channel> channels;
+    private ProgramWorker programWorker;
+    private Channel activeChannel;
+    private ProgramModel activeModel;
+    private long selection;
 
     /**
      * Initialize model class.
@@ -27,68 +63,407 @@ public class Model {
      * @param starter Controller class.
      */
     public Model(Starter starter) {
-        parser = new APIParser();
+        Path cacheDir = Path.of(System.getProperty("radioinfo.cacheDir",
+                System.getProperty("user.home") + "/.radioinfo"));
+        engine = new TaskEngine();
+        parser = new APIParser(
+                Integer.getInteger("radioinfo.imageRequests",
+                        APIParser.DEFAULT_IMAGE_REQUESTS),
+                Integer.getInteger("radioinfo.pageRequests",
+                        APIParser.DEFAULT_PAGE_REQUESTS),
+                cacheDir.resolve("images"),
+                Long.getLong("radioinfo.imageCacheBytes",
+                        DiskImageCache.DEFAULT_MAX_BYTES),
+                Long.getLong("radioinfo.imageMemoryBytes",
+                        ImageCache.DEFAULT_MAX_BYTES),
+                engine);
+        parser.setHorizon(
+                Duration.ofHours(Long.getLong("radioinfo.hoursBefore",
+                        APIParser.DEFAULT_BEFORE.toHours())),
+                Duration.ofHours(Long.getLong("radioinfo.hoursAfter",
+                        APIParser.DEFAULT_AFTER.toHours())));
         this.starter = starter;
+        snapshot = new ScheduleSnapshot(cacheDir.resolve("schedule.bin"),
+                parser.getInterner());
+        scheduleCache = new ScheduleCache(REFRESH_PERIOD,
+                Integer.getInteger("radioinfo.cachedPrograms",
+                        ScheduleCache.DEFAULT_MAX_PROGRAMS));
+        searchIndex = new ProgramSearchIndex();
+        scheduleCache.addListener(searchIndex::update);
+        channels = new ArrayList<>();
+        prefetcher = Boolean.getBoolean("radioinfo.prefetch")
+                ? new SchedulePrefetcher(engine, this::prefetch,
+                        this::prefetchDone,
+                        Integer.getInteger("radioinfo.prefetchThreads",
+                                SchedulePrefetcher.DEFAULT_THREADS),
+                        REFRESH_PERIOD)
+                : null;
+        refresher = new RefreshScheduler(engine, scheduleCache,
+                this::refreshChannels);
     }
 
     /**
-     * Loop that determines when to update channels.
+     * Start refreshing schedules when their airing programs end.
      */
     public void loop() {
+        refresher.reschedule();
+    }
 
-        Timer timer = new Timer();
-        int hour = 1000 * 60 * 60;
+    /**
+     * Refresh schedules of channels. They are marked as expired and the
+     * channel shown in the program table is loaded again.
+     *
+     * @param channelIds Ids of channels to refresh.
+     */
+    private void refreshChannels(Set<Integer> channelIds) {
+        for (int id : channelIds) {
+            scheduleCache.expire(id);
+            if (prefetcher != null) {
+                prefetcher.requeue(id);
+            }
+        }
+        SwingUtilities.invokeLater(() -> {
+            if (activeChannel != null
+                    && channelIds.contains(activeChannel.getChannelId())) {
+                startWorker(activeChannel, activeModel, true);
+            }
+        });
+    }
 
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
+    /**
+     * Keep the now playing column of the channel table up to date. The
+     * right now listing is loaded at once and again when the first of the
+     * airing programs ends.
+     *
+     * @param cModel Model for channel table.
+     */
+    public void startNowPlaying(ChannelModel cModel) {
+        engine.execute(() -> refreshNowPlaying(cModel));
+    }
 
-                starter.startWorker();
+    /**
+     * Load the right now listing, show it and schedule the next load. The
+     * next load is scheduled also if this one failed.
+     *
+     * @param cModel Model for channel table.
+     */
+    private void refreshNowPlaying(ChannelModel cModel) {
+
+        long delay = RefreshScheduler.MAX_INTERVAL;
+        try {
+            ArrayList<NowPlaying> nowPlaying = parser.parseRightNow();
+            SwingUtilities.invokeLater(() -> cModel.setNowPlaying(nowPlaying));
 
+            long now = System.currentTimeMillis();
+            for (NowPlaying entry : nowPlaying) {
+                Program current = entry.getCurrent();
+                if (current != null && current.getEndMillis() > now) {
+                    delay = Math.min(delay, current.getEndMillis() - now);
+                }
             }
-        }, hour, hour);
+            delay = Math.max(RefreshScheduler.MIN_INTERVAL, delay);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            System.out.println("Could not load now playing: "
+                    + e.getMessage());
+        } finally {
+            engine.schedule(() -> refreshNowPlaying(cModel), delay);
+        }
+    }
+
+    /**
+     * Run a worker on the task engine instead of the shared SwingWorker
+     * threads. Results still reach the EDT through publish and done.
+     *
+     * @param worker Worker to run.
+     */
+    public void execute(SwingWorker<?, ?> worker) {
+        engine.execute(worker);
     }
 
     /**
      * Parses and returns list of channels.
      *
      * @return List of parsed channels.
-     * @throws ParserConfigurationException Error while parsing.
-     * @throws SAXException                 Error while parsing.
-     * @throws IOException                  Error reading picture.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        Error reading picture.
      */
     public ArrayList<Channel> getChannelList()
-            throws ParserConfigurationException, SAXException, IOException {
+            throws XMLStreamException, IOException {
+
+        ArrayList<Channel> channelList = parser.buildChannelList();
+        if (!channelList.isEmpty()) {
+            channels = new ArrayList<>(channelList);
+            saveSnapshot();
+        }
+        return channelList;
+    }
+
+    /**
+     * Load channel logos, the given channels first and then the rest in
+     * list order.
+     *
+     * @param channels   Channels to load logos for.
+     * @param firstIndex First index to load before the rest.
+     * @param lastIndex  Last index to load before the rest.
+     * @param onLoaded   Called with each channel when its logo is set.
+     * @throws IOException If interrupted while loading.
+     */
+    public void loadChannelImages(List<Channel> channels, int firstIndex,
+                                  int lastIndex, Consumer<Channel> onLoaded)
+            throws IOException {
+
+        ArrayList<Channel> ordered = new ArrayList<>();
+        for (int i = 0; i < channels.size(); i++) {
+            if (i >= firstIndex && i <= lastIndex) {
+                ordered.add(channels.get(i));
+            }
+        }
+        for (int i = 0; i < channels.size(); i++) {
+            if (i < firstIndex || i > lastIndex) {
+                ordered.add(channels.get(i));
+            }
+        }
+        parser.loadChannelImages(ordered, onLoaded);
+    }
+
+    /**
+     * Load channels and schedules saved by an earlier run. The schedules
+     * are kept so they can be shown until fresh ones are loaded.
+     *
+     * @return Saved channels, empty if there is no valid snapshot.
+     */
+    public ArrayList<Channel> loadSnapshot() {
+
+        ArrayList<Channel> saved = snapshot.read();
+        for (Channel ch : saved) {
+            // Loaded at time 0 so it is shown but revalidated at once.
+            scheduleCache.put(ch.getChannelId(), ch.getPrograms(), 0);
+            ch.getPrograms().clear();
+        }
+        if (channels.isEmpty()) {
+            channels = new ArrayList<>(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * Get latest known schedule of channel, fresh or not.
+     *
+     * @param channel Channel to get schedule for.
+     * @return Latest schedule, or null if none is known.
+     */
+    public List<Program> getStoredSchedule(Channel channel) {
+        return scheduleCache.getStale(channel.getChannelId());
+    }
+
+    /**
+     * Search names and descriptions of programs of all loaded channels in
+     * the background, so the EDT never waits for index updates. The hits
+     * are handed to the callback on the EDT unless the search was
+     * cancelled.
+     *
+     * @param query   Words to search for, each matched as a prefix.
+     * @param onFound Called with the hits in start time order.
+     * @return Future that can be cancelled if the hits are no longer needed.
+     */
+    public Future<?> search(String query,
+                            Consumer<List<ProgramSearchIndex.Hit>> onFound) {
 
-        return parser.buildChannelList();
+        return engine.submit(() -> {
+            List<ProgramSearchIndex.Hit> hits =
+                    searchIndex.search(query, SEARCH_LIMIT);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> onFound.accept(hits));
+        });
+    }
+
+    /**
+     * Get cache of schedules, for example to read its statistics.
+     *
+     * @return Schedule cache.
+     */
+    public ScheduleCache getScheduleCache() {
+        return scheduleCache;
+    }
+
+    /**
+     * Plan a write of the snapshot. Saves requested within SNAPSHOT_DELAY
+     * of each other are written once, on a background thread.
+     */
+    private void saveSnapshot() {
+        if (snapshotPending.compareAndSet(false, true)) {
+            engine.schedule(this::writeSnapshot, SNAPSHOT_DELAY);
+        }
+    }
+
+    /**
+     * Write current channels and schedules to the snapshot.
+     */
+    private synchronized void writeSnapshot() {
+        snapshotPending.set(false);
+        try {
+            snapshot.write(channels, scheduleCache.getAll());
+        } catch (IOException e) {
+            System.out.println("Could not save snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Start prefetching schedules of all channels, if prefetching is
+     * enabled with the radioinfo.prefetch property.
+     */
+    public void prefetchSchedules() {
+        if (prefetcher != null) {
+            prefetcher.setChannels(channels);
+        }
+    }
+
+    /**
+     * Tell model which channel the user selected.
+     *
+     * @param row     Row of channel in the table.
+     * @param channel Selected channel.
+     */
+    public void channelSelected(int row, Channel channel) {
+        if (prefetcher != null) {
+            prefetcher.channelSelected(row, channel.getChannelId());
+        }
+    }
+
+    /**
+     * Save prefetched schedules and plan refreshes for them.
+     */
+    private void prefetchDone() {
+        saveSnapshot();
+        refresher.reschedule();
     }
 
     /**
-     * Start programWorker.
+     * Load schedule of channel into the cache for the prefetcher.
+     *
+     * @param channel Channel to load.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        I/O error.
+     */
+    private void prefetch(Channel channel)
+            throws IOException, XMLStreamException {
+        scheduleCache.get(channel.getChannelId(),
+                () -> parser.parsePrograms(channel, page -> {
+                }));
+    }
+
+    /**
+     * Start programWorker. A worker for an earlier selection is cancelled,
+     * which also interrupts its requests. Should be called on the EDT.
+     *
+     * @param channel Channel program runs on.
+     * @param pModel  Model for program table.
+     */
+    public void startWorker(Channel channel, ProgramModel pModel) {
+        startWorker(channel, pModel, false);
+    }
+
+    /**
+     * Start programWorker, cancelling the worker of an earlier selection.
      *
      * @param channel Channel program runs on.
-     * @throws ParserConfigurationException Error while parsing.
-     * @throws SAXException                 Error while parsing.
-     * @throws IOException                  Error reading picture.
+     * @param pModel  Model for program table.
+     * @param refresh True to only apply differences to the table.
      */
-    public void startWorker(Channel channel, ProgramModel pModel)
-            throws IOException, SAXException, ParserConfigurationException {
+    private void startWorker(Channel channel, ProgramModel pModel,
+                             boolean refresh) {
 
-        new ProgramWorker(channel, this, pModel).execute();
+        if (programWorker != null) {
+            programWorker.cancel(true);
+        }
+        selection++;
+        activeChannel = channel;
+        activeModel = pModel;
+        programWorker = new ProgramWorker(channel, this, pModel, selection,
+                refresh);
+        engine.execute(programWorker);
     }
 
     /**
-     * Parse programs.
+     * Check if a worker's selection is still the current one. Should be
+     * called on the EDT.
+     *
+     * @param workerSelection Selection the worker was started for.
+     * @return True if current.
+     */
+    protected boolean isCurrentSelection(long workerSelection) {
+        return workerSelection == selection;
+    }
+
+    /**
+     * Get programs, from the schedule cache if fresh. Otherwise they are
+     * parsed and pages are handed to the listener as they are parsed. If
+     * the channel is already being loaded that load is shared and the
+     * listener is not called.
      *
      * @param channel Channel program runs on.
+     * @param onPage  Called with the programs of each page.
      * @return List of parsed programs.
-     * @throws ParserConfigurationException Error while parsing.
-     * @throws SAXException                 Error while parsing.
-     * @throws IOException                  Error reading picture.
+     * @throws XMLStreamException Error while parsing.
+     * @throws IOException        Error reading picture.
      */
-    protected ArrayList<Program> parsePrograms(Channel channel)
-            throws ParserConfigurationException, SAXException, IOException {
-        return parser.parsePrograms(channel);
+    protected List<Program> parsePrograms(Channel channel,
+                                          Consumer<List<Program>> onPage)
+            throws XMLStreamException, IOException {
+
+        if (prefetcher != null) {
+            prefetcher.userLoadStarted();
+        }
+        try {
+            boolean[] loaded = new boolean[1];
+            List<Program> programs = scheduleCache.get(
+                    channel.getChannelId(), () -> {
+                        loaded[0] = true;
+                        return parser.parsePrograms(channel, onPage);
+                    });
+            if (loaded[0]) {
+                saveSnapshot();
+                refresher.reschedule();
+            }
+            return programs;
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.userLoadFinished();
+            }
+        }
+    }
+
+    /**
+     * Load image of program in the background. The image is kept on the
+     * program and handed to the callback on the EDT. Nothing is handed on
+     * if the load failed or was cancelled, so the shown picture is kept.
+     *
+     * @param program  Program to load image for.
+     * @param onLoaded Called with the loaded image.
+     * @return Future that can be cancelled if the image is no longer needed.
+     */
+    public Future<?> loadProgramImage(Program program,
+                                      Consumer<Image> onLoaded) {
+
+        return engine.submit(() -> {
+            Image image;
+            try {
+                image = parser.parseImage(program.getImageURL());
+            } catch (InterruptedIOException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Could not load image "
+                        + program.getImageURL() + ": " + e.getMessage());
+                return;
+            }
+            program.setImage(image);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> onLoaded.accept(image));
+        });
     }
 
     /**
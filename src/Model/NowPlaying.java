@@ -0,0 +1,53 @@
+package Model;
+
+/**
+ * Program airing now and the next program on a channel.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class NowPlaying {
+
+    private final int channelId;
+    private final Program current;
+    private final Program next;
+
+    /**
+     * Create now playing entry.
+     *
+     * @param channelId Id of channel.
+     * @param current   Program airing now, or null.
+     * @param next      Next program, or null.
+     */
+    public NowPlaying(int channelId, Program current, Program next) {
+        this.channelId = channelId;
+        this.current = current;
+        this.next = next;
+    }
+
+    /**
+     * Get id of channel.
+     *
+     * @return Channel id.
+     */
+    public int getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Get program airing now.
+     *
+     * @return Program, or null if nothing is airing.
+     */
+    public Program getCurrent() {
+        return current;
+    }
+
+    /**
+     * Get next program.
+     *
+     * @return Program, or null if unknown.
+     */
+    public Program getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,43 @@
+package Model;
+
+import java.util.ArrayList;
+
+/**
+ * One parsed page of the right now listing.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class NowPlayingPage {
+
+    private final int totalPages;
+    private final ArrayList<NowPlaying> channels;
+
+    /**
+     * Create page.
+     *
+     * @param totalPages Total amount of pages.
+     * @param channels   Now playing of the channels on this page.
+     */
+    public NowPlayingPage(int totalPages, ArrayList<NowPlaying> channels) {
+        this.totalPages = totalPages;
+        this.channels = channels;
+    }
+
+    /**
+     * Get total amount of pages.
+     *
+     * @return Total amount of pages.
+     */
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    /**
+     * Get now playing of the channels on this page.
+     *
+     * @return List of now playing entries.
+     */
+    public ArrayList<NowPlaying> getChannels() {
+        return channels;
+    }
+}
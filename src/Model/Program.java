@@ -1,11 +1,13 @@
 package Model;
 
 import java.awt.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.TextStyle;
-import java.util.Date;
+import java.time.zone.ZoneRules;
 import java.util.Locale;
 
 /**
@@ -15,12 +17,31 @@ import java.util.Locale;
  */
 public class Program {
 
-    private String name;
-    private Date startTime;
-    private Date endTime;
+    /**
+     * Time value used when a time is unknown.
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * Time zone times are shown in.
+     */
+    public static final ZoneId ZONE = ZoneId.of("Europe/Stockholm");
 
-    private String description;
-    private Image image;
+    private static final ZoneRules RULES = ZONE.getRules();
+    private static final String[] MONTHS = new String[12];
+
+    static {
+        for (Month month : Month.values()) {
+            MONTHS[month.ordinal()] =
+                    month.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+        }
+    }
+
+    private Series series = Series.EMPTY;
+    private long startTime = NO_TIME;
+    private long endTime = NO_TIME;
+    private String startText;
+    private String endText;
 
     /**
      * Gets name of program.
@@ -28,49 +49,108 @@ public class Program {
      * @return Programs name.
      */
     public String getName() {
-        return name;
+        return series.getName();
     }
 
     /**
-     * Gets starting time for program.
+     * Get series metadata of program, possibly shared with other episodes.
+     *
+     * @return Series.
+     */
+    public Series getSeries() {
+        return series;
+    }
+
+    /**
+     * Set series metadata of program, usually a shared one from
+     * ScheduleInterner.
+     *
+     * @param series Series.
+     */
+    public void setSeries(Series series) {
+        this.series = series;
+    }
+
+    /**
+     * Gets starting time for program. Formatted once and then reused.
      *
      * @return Starting time for program in String format.
      */
     public String getStartTime() {
-
-        return reFormatDate(startTime);
+        if (startText == null) {
+            startText = formatTime(startTime);
+        }
+        return startText;
     }
 
     /**
-     * Reformat date to show cleaner on table.
+     * Reformat time to show cleaner on table.
      *
-     * @param time Date to reformat.
-     * @return Reformatted date into  String.
+     * @param time Time in epoch millis.
+     * @return Reformatted time into String, empty if NO_TIME.
      */
-    private String reFormatDate(Date time) {
+    public static String formatTime(long time) {
 
-        LocalDateTime reformatTime = time.toInstant()
-                .atZone(ZoneId.systemDefault()).toLocalDateTime();
+        if (time == NO_TIME) {
+            return "";
+        }
 
-        int day = reformatTime.getDayOfMonth();
-        Month month = reformatTime.getMonth();
-        int hours = reformatTime.getHour() + 1;
-        int minutes = reformatTime.getMinute();
+        long seconds = Math.floorDiv(time, 1000);
+        ZoneOffset offset = RULES.getOffset(Instant.ofEpochSecond(seconds));
+        LocalDateTime reformatTime = LocalDateTime.ofEpochSecond(
+                seconds, 0, offset);
 
-        return month.getDisplayName(TextStyle.FULL, Locale.ENGLISH)
-                + " " + day + "    " + String.format("%02d", hours) +
-                " : " + String.format("%02d", minutes);
+        int hours = reformatTime.getHour();
+        int minutes = reformatTime.getMinute();
 
+        StringBuilder sb = new StringBuilder(24);
+        sb.append(MONTHS[reformatTime.getMonthValue() - 1]).append(' ')
+                .append(reformatTime.getDayOfMonth()).append("    ");
+        appendTwoDigits(sb, hours).append(" : ");
+        appendTwoDigits(sb, minutes);
+        return sb.toString();
     }
 
+    /**
+     * Append number with a leading zero if below ten.
+     *
+     * @param sb    Builder to append to.
+     * @param value Number between 0 and 99.
+     * @return The builder.
+     */
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10))
+                .append((char) ('0' + value % 10));
+    }
 
     /**
-     * Gets ending time for program.
+     * Gets ending time for program. Formatted once and then reused.
      *
      * @return ending time for program in String format.
      */
     public String getEndTime() {
-        return reFormatDate(endTime);
+        if (endText == null) {
+            endText = formatTime(endTime);
+        }
+        return endText;
+    }
+
+    /**
+     * Gets starting time for program.
+     *
+     * @return Start time in epoch millis, NO_TIME if unknown.
+     */
+    public long getStartMillis() {
+        return startTime;
+    }
+
+    /**
+     * Gets ending time for program.
+     *
+     * @return End time in epoch millis, NO_TIME if unknown.
+     */
+    public long getEndMillis() {
+        return endTime;
     }
 
     /**
@@ -79,16 +159,18 @@ public class Program {
      * @param name Programs title name.
      */
     public void setName(String name) {
-        this.name = name;
+        series = series.with(name, series.getDescription(),
+                series.getImageURL());
     }
 
     /**
-     * Sets start date for program.
+     * Sets start time for program.
      *
-     * @param startTime date for program.
+     * @param startTime Time in epoch millis, NO_TIME if unknown.
      */
-    public void setStartTime(Date startTime) {
+    public void setStartTime(long startTime) {
         this.startTime = startTime;
+        startText = null;
     }
 
     /**
@@ -97,25 +179,49 @@ public class Program {
      * @param desc Description
      */
     public void setDescription(String desc) {
-        this.description = desc;
+        series = series.with(series.getName(), desc, series.getImageURL());
     }
 
     /**
-     * Set program image.
+     * Set program image. The image is shared by all episodes of the series.
+     * A program without series metadata gets its own copy first.
      *
      * @param image Image.
      */
     public void setImage(Image image) {
-        this.image = image;
+        if (series == Series.EMPTY) {
+            series = series.with(null, null, null);
+        }
+        series.setImage(image);
     }
 
     /**
-     * Sets end date for program.
+     * Sets end time for program.
      *
-     * @param endTime date for program.
+     * @param endTime Time in epoch millis, NO_TIME if unknown.
      */
-    public void setEndTime(Date endTime) {
+    public void setEndTime(long endTime) {
         this.endTime = endTime;
+        endText = null;
+    }
+
+    /**
+     * Set URL of program image.
+     *
+     * @param imageURL URL of image.
+     */
+    public void setImageURL(String imageURL) {
+        series = series.with(series.getName(), series.getDescription(),
+                imageURL);
+    }
+
+    /**
+     * Get URL of program image.
+     *
+     * @return URL of image, null if program has none.
+     */
+    public String getImageURL() {
+        return series.getImageURL();
     }
 
     /**
@@ -124,7 +230,7 @@ public class Program {
      * @return Programs logo image.
      */
     public Image getImage() {
-        return image;
+        return series.getImage();
     }
 
     /**
@@ -133,6 +239,94 @@ public class Program {
      * @return Program description.
      */
     public String getDescription() {
-        return description;
+        return series.getDescription();
+    }
+
+    /**
+     * Parse UTC time in API format, like 2021-01-01T12:00:00Z. Fractions of
+     * seconds are ignored.
+     *
+     * @param text Time to parse.
+     * @return Time in epoch millis, NO_TIME if malformed.
+     */
+    public static long parseUtc(CharSequence text) {
+
+        if (text == null || text.length() < 20 || text.charAt(4) != '-'
+                || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':'
+                || text.charAt(text.length() - 1) != 'Z') {
+            return NO_TIME;
+        }
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > daysInMonth(year, month) || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return NO_TIME;
+        }
+
+        long days = daysFromCivil(year, month, day);
+        return ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L;
+    }
+
+    /**
+     * Read fixed amount of decimal digits.
+     *
+     * @param text   Text to read from.
+     * @param start  First index.
+     * @param length Amount of digits.
+     * @return Value, or -1 if not all are digits.
+     */
+    private static int digits(CharSequence text, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Amount of days in a month of the Gregorian calendar.
+     *
+     * @param year  Year.
+     * @param month Month, 1 to 12.
+     * @return Days in month.
+     */
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = year % 4 == 0
+                    && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11
+                ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 for a date in the proleptic Gregorian calendar.
+     *
+     * @param year  Year.
+     * @param month Month, 1 to 12.
+     * @param day   Day of month.
+     * @return Days since epoch.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = Math.floorDiv(year, 400);
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5
+                + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
     }
 }
@@ -0,0 +1,392 @@
+package Model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Schedule stored as columns instead of one object per program. Times are
+ * kept in long arrays and the series of each row as an id into a series
+ * table, so episodes share the interned Series and its artwork. A Program
+ * is only created when a single row is asked for. Start and end times are
+ * formatted for display once per row.
+ * <p>
+ * Not thread safe. A store shared between threads must not be changed
+ * after it has been published.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ProgramColumns {
+
+    private long[] starts;
+    private long[] ends;
+    private int[] seriesIds;
+    private String[] startTexts;
+    private String[] endTexts;
+    private int size;
+
+    private final ArrayList<Series> series;
+    private final HashMap<Series, Integer> idsBySeries;
+    private final List<Program> view;
+
+    /**
+     * Initialize empty store.
+     */
+    public ProgramColumns() {
+        this(16);
+    }
+
+    /**
+     * Initialize empty store with room for some rows.
+     *
+     * @param capacity Amount of rows to make room for.
+     */
+    public ProgramColumns(int capacity) {
+        capacity = Math.max(1, capacity);
+        starts = new long[capacity];
+        ends = new long[capacity];
+        seriesIds = new int[capacity];
+        series = new ArrayList<>();
+        idsBySeries = new HashMap<>();
+        view = new Rows();
+    }
+
+    /**
+     * Create store with programs sorted by start time.
+     *
+     * @param programs Programs in any order.
+     * @return New store.
+     */
+    public static ProgramColumns sortedByStart(List<Program> programs) {
+        ArrayList<Program> sorted = new ArrayList<>(programs);
+        sorted.sort((a, b) -> Long.compare(a.getStartMillis(),
+                b.getStartMillis()));
+        ProgramColumns columns = new ProgramColumns(sorted.size());
+        columns.insert(0, sorted);
+        return columns;
+    }
+
+    /**
+     * Get amount of programs.
+     *
+     * @return Amount of programs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get start time of a row.
+     *
+     * @param row Row index.
+     * @return Start time in epoch millis, NO_TIME if unknown.
+     */
+    public long getStart(int row) {
+        checkRow(row);
+        return starts[row];
+    }
+
+    /**
+     * Get end time of a row.
+     *
+     * @param row Row index.
+     * @return End time in epoch millis, NO_TIME if unknown.
+     */
+    public long getEnd(int row) {
+        checkRow(row);
+        return ends[row];
+    }
+
+    /**
+     * Get start time of a row formatted for display.
+     *
+     * @param row Row index.
+     * @return Formatted start time.
+     */
+    public String getStartText(int row) {
+        checkRow(row);
+        ensureTexts();
+        if (startTexts[row] == null) {
+            startTexts[row] = Program.formatTime(starts[row]);
+        }
+        return startTexts[row];
+    }
+
+    /**
+     * Get end time of a row formatted for display.
+     *
+     * @param row Row index.
+     * @return Formatted end time.
+     */
+    public String getEndText(int row) {
+        checkRow(row);
+        ensureTexts();
+        if (endTexts[row] == null) {
+            endTexts[row] = Program.formatTime(ends[row]);
+        }
+        return endTexts[row];
+    }
+
+    /**
+     * Create the columns of formatted times when first needed, so stores
+     * that are never shown do not have them.
+     */
+    private void ensureTexts() {
+        if (startTexts == null) {
+            startTexts = new String[starts.length];
+            endTexts = new String[starts.length];
+        }
+    }
+
+    /**
+     * Get series of a row.
+     *
+     * @param row Row index.
+     * @return Series shared by all rows of the same series.
+     */
+    public Series getSeries(int row) {
+        checkRow(row);
+        return series.get(seriesIds[row]);
+    }
+
+    /**
+     * Get title of a row.
+     *
+     * @param row Row index.
+     * @return Title, or null.
+     */
+    public String getName(int row) {
+        return getSeries(row).getName();
+    }
+
+    /**
+     * Get description of a row.
+     *
+     * @param row Row index.
+     * @return Description, or null.
+     */
+    public String getDescription(int row) {
+        return getSeries(row).getDescription();
+    }
+
+    /**
+     * Get image URL of a row.
+     *
+     * @param row Row index.
+     * @return URL, or null.
+     */
+    public String getImageURL(int row) {
+        return getSeries(row).getImageURL();
+    }
+
+    /**
+     * Create a program for a row. It shares the Series of the row, so
+     * artwork loaded for it is seen by all episodes. Other changes to it
+     * are not stored.
+     *
+     * @param row Row index.
+     * @return New program with the values of the row.
+     */
+    public Program getProgram(int row) {
+        Program program = new Program();
+        program.setSeries(getSeries(row));
+        program.setStartTime(starts[row]);
+        program.setEndTime(ends[row]);
+        return program;
+    }
+
+    /**
+     * Get the rows as a read only list. Programs are created when asked
+     * for, as with getProgram.
+     *
+     * @return List view of the rows.
+     */
+    public List<Program> asList() {
+        return view;
+    }
+
+    /**
+     * Insert programs before a row.
+     *
+     * @param row      Row index, size to add at the end.
+     * @param programs Programs to insert.
+     */
+    public void insert(int row, List<Program> programs) {
+        if (row < 0 || row > size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+        int count = programs.size();
+        ensureCapacity(size + count);
+        int moved = size - row;
+        System.arraycopy(starts, row, starts, row + count, moved);
+        System.arraycopy(ends, row, ends, row + count, moved);
+        System.arraycopy(seriesIds, row, seriesIds, row + count, moved);
+        if (startTexts != null) {
+            System.arraycopy(startTexts, row, startTexts, row + count, moved);
+            System.arraycopy(endTexts, row, endTexts, row + count, moved);
+        }
+        size += count;
+        for (int i = 0; i < count; i++) {
+            store(row + i, programs.get(i));
+        }
+    }
+
+    /**
+     * Replace the values of a row.
+     *
+     * @param row     Row index.
+     * @param program Program with the new values.
+     */
+    public void set(int row, Program program) {
+        checkRow(row);
+        store(row, program);
+    }
+
+    /**
+     * Check if a row has the same values as a program.
+     *
+     * @param row     Row index.
+     * @param program Program to compare with.
+     * @return True if equal.
+     */
+    public boolean matches(int row, Program program) {
+        return starts[row] == program.getStartMillis()
+                && ends[row] == program.getEndMillis()
+                && Objects.equals(getSeries(row), program.getSeries());
+    }
+
+    /**
+     * Remove a range of rows.
+     *
+     * @param from First row to remove.
+     * @param to   Row after the last one to remove.
+     */
+    public void remove(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException(from);
+        }
+        int moved = size - to;
+        System.arraycopy(starts, to, starts, from, moved);
+        System.arraycopy(ends, to, ends, from, moved);
+        System.arraycopy(seriesIds, to, seriesIds, from, moved);
+        int newSize = size - (to - from);
+        if (startTexts != null) {
+            System.arraycopy(startTexts, to, startTexts, from, moved);
+            System.arraycopy(endTexts, to, endTexts, from, moved);
+            Arrays.fill(startTexts, newSize, size, null);
+            Arrays.fill(endTexts, newSize, size, null);
+        }
+        size = newSize;
+        if (series.size() > 4 * size + 64) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the series table with only the series still in use, so
+     * repeated refreshes do not grow it.
+     */
+    private void compact() {
+        ArrayList<Series> old = new ArrayList<>(series);
+        series.clear();
+        idsBySeries.clear();
+        for (int row = 0; row < size; row++) {
+            seriesIds[row] = idOf(old.get(seriesIds[row]));
+        }
+    }
+
+    /**
+     * Remove all rows and forget the series table.
+     */
+    public void clear() {
+        size = 0;
+        series.clear();
+        idsBySeries.clear();
+        startTexts = null;
+        endTexts = null;
+    }
+
+    /**
+     * Write a program into a row.
+     *
+     * @param row     Row index.
+     * @param program Program to store.
+     */
+    private void store(int row, Program program) {
+        starts[row] = program.getStartMillis();
+        ends[row] = program.getEndMillis();
+        seriesIds[row] = idOf(program.getSeries());
+        if (startTexts != null) {
+            startTexts[row] = null;
+            endTexts[row] = null;
+        }
+    }
+
+    /**
+     * Get id of a series, adding it to the table if new. Equal series get
+     * the same id, so the first instance stored is shared.
+     *
+     * @param value Series.
+     * @return Id.
+     */
+    private int idOf(Series value) {
+        Integer id = idsBySeries.get(value);
+        if (id == null) {
+            id = series.size();
+            series.add(value);
+            idsBySeries.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Grow the columns to hold at least the given amount of rows.
+     *
+     * @param capacity Needed amount of rows.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= starts.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, starts.length * 2);
+        starts = Arrays.copyOf(starts, newLength);
+        ends = Arrays.copyOf(ends, newLength);
+        seriesIds = Arrays.copyOf(seriesIds, newLength);
+        if (startTexts != null) {
+            startTexts = Arrays.copyOf(startTexts, newLength);
+            endTexts = Arrays.copyOf(endTexts, newLength);
+        }
+    }
+
+    /**
+     * Check that a row exists.
+     *
+     * @param row Row index.
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException(row);
+        }
+    }
+
+    /**
+     * Read only list of the rows.
+     */
+    private class Rows extends AbstractList<Program> implements RandomAccess {
+
+        @Override
+        public Program get(int index) {
+            checkRow(index);
+            return getProgram(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
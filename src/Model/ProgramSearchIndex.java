@@ -0,0 +1,196 @@
+package Model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory search index over names and descriptions of the programs of
+ * all loaded channels. Words are lower cased and accents are removed, so
+ * å and ä match a and ö matches o. Every word of a query matches as a
+ * prefix. Schedules are added and replaced one channel at a time. Hits
+ * refer to a row of the cached schedule of a channel.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ProgramSearchIndex {
+
+    private static final Locale SWEDISH = Locale.forLanguageTag("sv-SE");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS =
+            Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final TreeMap<String, HashMap<Integer, ArrayList<Hit>>> postings;
+    private final HashMap<Integer, Set<String>> wordsByChannel;
+
+    /**
+     * Program found by a search and the channel it runs on.
+     */
+    public static class Hit {
+        private final int channelId;
+        private final ProgramColumns columns;
+        private final int row;
+
+        private Hit(int channelId, ProgramColumns columns, int row) {
+            this.channelId = channelId;
+            this.columns = columns;
+            this.row = row;
+        }
+
+        /**
+         * Get id of channel the program runs on.
+         *
+         * @return Channel id.
+         */
+        public int getChannelId() {
+            return channelId;
+        }
+
+        /**
+         * Get program. A new program is created for the row on each call.
+         *
+         * @return Program.
+         */
+        public Program getProgram() {
+            return columns.getProgram(row);
+        }
+    }
+
+    /**
+     * Initialize empty index.
+     */
+    public ProgramSearchIndex() {
+        postings = new TreeMap<>();
+        wordsByChannel = new HashMap<>();
+    }
+
+    /**
+     * Replace the indexed schedule of a channel. Hits are grouped per word
+     * and channel, so removing a channel touches each of its words once.
+     *
+     * @param channelId Id of channel.
+     * @param columns   Schedule of channel, or null to remove it. It must
+     *                  not be changed while it is indexed.
+     */
+    public synchronized void update(int channelId, ProgramColumns columns) {
+        Set<String> oldWords = wordsByChannel.remove(channelId);
+        if (oldWords != null) {
+            for (String word : oldWords) {
+                HashMap<Integer, ArrayList<Hit>> channels = postings.get(word);
+                channels.remove(channelId);
+                if (channels.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+        if (columns == null) {
+            return;
+        }
+
+        HashMap<String, ArrayList<Hit>> added = new HashMap<>();
+        LinkedHashSet<String> words = new LinkedHashSet<>();
+        for (int row = 0; row < columns.size(); row++) {
+            words.clear();
+            addWords(columns.getName(row), words);
+            addWords(columns.getDescription(row), words);
+            Hit hit = new Hit(channelId, columns, row);
+            for (String word : words) {
+                added.computeIfAbsent(word, w -> new ArrayList<>()).add(hit);
+            }
+        }
+        for (Map.Entry<String, ArrayList<Hit>> e : added.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), w -> new HashMap<>())
+                    .put(channelId, e.getValue());
+        }
+        wordsByChannel.put(channelId, added.keySet());
+    }
+
+    /**
+     * Find programs matching all words of a query as prefixes.
+     *
+     * @param query Words to search for.
+     * @param limit Max amount of hits.
+     * @return Hits in start time order.
+     */
+    public synchronized List<Hit> search(String query, int limit) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>();
+        addWords(query, terms);
+
+        Set<Hit> matches = null;
+        for (String term : terms) {
+            HashSet<Hit> termMatches = new HashSet<>();
+            for (HashMap<Integer, ArrayList<Hit>> channels : postings
+                    .subMap(term, true, term + Character.MAX_VALUE, true)
+                    .values()) {
+                for (ArrayList<Hit> hits : channels.values()) {
+                    termMatches.addAll(hits);
+                }
+            }
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.retainAll(termMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        if (matches == null) {
+            return new ArrayList<>();
+        }
+
+        ArrayList<Hit> result = new ArrayList<>(matches);
+        result.sort(Comparator.comparingLong(
+                (Hit h) -> h.columns.getStart(h.row))
+                .thenComparingInt(h -> h.channelId));
+        return result.size() > limit
+                ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Get amount of distinct words in the index.
+     *
+     * @return Amount of words.
+     */
+    public synchronized int getWordCount() {
+        return postings.size();
+    }
+
+    /**
+     * Normalize text to searchable form: lower case without accents.
+     *
+     * @param text Text to normalize.
+     * @return Normalized text.
+     */
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(SWEDISH),
+                Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    /**
+     * Split normalized text into words.
+     *
+     * @param text  Text, may be null.
+     * @param words Set to add words to.
+     */
+    private static void addWords(String text, Set<String> words) {
+        if (text == null) {
+            return;
+        }
+        for (String word : SEPARATORS.split(normalize(text))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+    }
+}
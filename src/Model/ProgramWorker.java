@@ -1,10 +1,9 @@
 package Model;
 
 import View.ProgramModel;
-import org.xml.sax.SAXException;
 
 import javax.swing.*;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,22 +13,32 @@ import java.util.List;
  *
  * @author Edvin Lindholm (c19elm)
  */
-public class ProgramWorker extends SwingWorker<Void, Program> {
+public class ProgramWorker extends SwingWorker<Void, List<Program>> {
 
-    private ArrayList<Program> programList;
+    private List<Program> programList;
     private final Channel channel;
     private final Model model;
     private final ProgramModel pModel;
+    private final long selection;
+    private final boolean refresh;
+    private List<Program> stored;
+    private boolean showingStored;
 
     /**
      * Initializes worker to parse programs.
      * @param channel Channel program runs on.
      * @param model Model class.
      * @param pModel Model for program table.
+     * @param selection Selection this worker is loading for.
+     * @param refresh True if the table already shows the channel and
+     *                should only get the differences.
      */
-    public ProgramWorker(Channel channel, Model model, ProgramModel pModel) {
+    public ProgramWorker(Channel channel, Model model, ProgramModel pModel,
+                         long selection, boolean refresh) {
 
         programList = new ArrayList<>();
+        this.selection = selection;
+        this.refresh = refresh;
         this.pModel = pModel;
         this.channel = channel;
         this.model = model;
@@ -37,31 +46,83 @@ public class ProgramWorker extends SwingWorker<Void, Program> {
     }
 
     /**
-     * Get programs from channel and publish.
+     * Get programs from channel and publish each page as soon as it is
+     * parsed, or the whole schedule at once if it was cached. A stored
+     * schedule is published first and replaced when the first page
+     * arrives. If fetching fails the stored schedule is shown again. A
+     * refresh publishes only the whole schedule and keeps the table as it
+     * is if fetching fails.
      *
      * @return Null.
      */
     @Override
     protected Void doInBackground()
-            throws IOException, SAXException, ParserConfigurationException {
+            throws IOException, XMLStreamException {
 
-        programList = model.parsePrograms(channel);
+        if (refresh) {
+            try {
+                programList = model.parsePrograms(channel, page -> {
+                });
+            } catch (IOException e) {
+                System.out.println("Could not refresh " + channel.getName()
+                        + ": " + e.getMessage());
+                return null;
+            }
+            publish(programList);
+            return null;
+        }
+
+        stored = model.getStoredSchedule(channel);
+        if (stored != null) {
+            publish(stored);
+        }
 
-        for (Program p : programList) {
-            publish(p);
+        boolean[] streamed = new boolean[1];
+        try {
+            programList = model.parsePrograms(channel, page -> {
+                streamed[0] = true;
+                publish(page);
+            });
+        } catch (IOException e) {
+            if (stored != null && !isCancelled()) {
+                publish(stored);
+                return null;
+            }
+            throw e;
+        }
+
+        // Served from cache or a shared load, nothing was streamed.
+        if (!streamed[0] && programList != stored) {
+            publish(programList);
         }
         return null;
     }
 
     /**
-     * Add programs to channel.
+     * Show published programs in the program table, unless the user has
+     * selected another channel since. Pages are inserted in time order
+     * and a refresh is applied as differences to the table.
      *
-     * @param programs List of programs.
+     * @param chunks Stored schedule or parsed pages, in publish order.
      */
     @Override
-    protected void process(List<Program> programs) {
-        for (Program p : programs) {
-            pModel.addProgram(p);
+    protected void process(List<List<Program>> chunks) {
+        if (isCancelled() || !model.isCurrentSelection(selection)) {
+            return;
+        }
+        for (List<Program> chunk : chunks) {
+            if (refresh) {
+                pModel.applyPrograms(chunk);
+            } else if (chunk == stored) {
+                pModel.replaceAll(chunk);
+                showingStored = true;
+            } else {
+                if (showingStored) {
+                    pModel.clearProgramList();
+                    showingStored = false;
+                }
+                pModel.addProgramsSorted(chunk);
+            }
         }
     }
 
@@ -70,6 +131,8 @@ public class ProgramWorker extends SwingWorker<Void, Program> {
      */
     @Override
     protected void done() {
-        model.workerIsDone();
+        if (model.isCurrentSelection(selection)) {
+            model.workerIsDone();
+        }
     }
 }
@@ -0,0 +1,125 @@
+package Model;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Schedules refreshes of cached schedules for when the programs airing now
+ * end, instead of at a fixed rate. Only channels whose airing program has
+ * ended are refreshed. A random jitter is added after the boundary so the
+ * API has time to update, and refreshes are never closer than a minimum
+ * interval.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class RefreshScheduler {
+
+    /**
+     * Shortest time in millis between two refreshes.
+     */
+    public static final long MIN_INTERVAL = 1000 * 60 * 2;
+
+    /**
+     * Longest time in millis between two checks.
+     */
+    public static final long MAX_INTERVAL = 1000 * 60 * 60;
+
+    private static final long JITTER = 1000 * 30;
+    private static final Logger LOGGER =
+            Logger.getLogger(RefreshScheduler.class.getName());
+
+    private final TaskEngine engine;
+    private final ScheduleCache cache;
+    private final Consumer<Set<Integer>> onRefresh;
+    private final Random random;
+    private Map<Integer, Long> boundaries;
+    private ScheduledFuture<?> next;
+
+    /**
+     * Initialize scheduler. Nothing is scheduled until reschedule is called.
+     *
+     * @param engine    Engine that runs the refreshes.
+     * @param cache     Cache with the schedules to refresh.
+     * @param onRefresh Called with ids of channels to refresh.
+     */
+    public RefreshScheduler(TaskEngine engine, ScheduleCache cache,
+                            Consumer<Set<Integer>> onRefresh) {
+        this.engine = engine;
+        this.cache = cache;
+        this.onRefresh = onRefresh;
+        random = new Random();
+        boundaries = new HashMap<>();
+    }
+
+    /**
+     * Compute next refresh from the cached schedules, replacing the one
+     * scheduled earlier. Should be called when a schedule has been loaded.
+     */
+    public synchronized void reschedule() {
+
+        long now = System.currentTimeMillis();
+        HashMap<Integer, Long> airingEnds = new HashMap<>();
+        long boundary = Long.MAX_VALUE;
+        for (Map.Entry<Integer, Program> e
+                : ScheduleIndex.at(cache.getIndexes(), now).entrySet()) {
+            long end = e.getValue().getEndMillis();
+            airingEnds.put(e.getKey(), end);
+            boundary = Math.min(boundary, end);
+        }
+
+        long delay;
+        if (boundary == Long.MAX_VALUE) {
+            delay = MAX_INTERVAL;
+        } else {
+            delay = boundary - now + (long) (random.nextDouble() * JITTER);
+            delay = Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, delay));
+        }
+
+        if (next != null) {
+            next.cancel(false);
+        }
+        boundaries = airingEnds;
+        next = engine.schedule(this::refresh, delay);
+
+        LOGGER.info(String.format(
+                "Next refresh in %d s, %d channels airing, boundary %s",
+                delay / 1000, airingEnds.size(),
+                boundary == Long.MAX_VALUE ? "none"
+                        : (boundary - now) / 1000 + " s"));
+    }
+
+    /**
+     * Refresh channels whose airing program has ended and schedule the
+     * next refresh, also if the refresh failed.
+     */
+    private void refresh() {
+
+        long now = System.currentTimeMillis();
+        HashSet<Integer> ended = new HashSet<>();
+        synchronized (this) {
+            for (Map.Entry<Integer, Long> e : boundaries.entrySet()) {
+                if (e.getValue() <= now) {
+                    ended.add(e.getKey());
+                }
+            }
+        }
+
+        LOGGER.info("Refreshing channels " + ended);
+        try {
+            if (!ended.isEmpty()) {
+                onRefresh.accept(ended);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Refresh failed", e);
+        } finally {
+            reschedule();
+        }
+    }
+}
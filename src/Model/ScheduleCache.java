@@ -0,0 +1,404 @@
+package Model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of channel schedules keyed by channel id. Entries expire
+ * after a time to live, the least recently used schedules are dropped when
+ * the total amount of programs goes over the limit, and concurrent loads of
+ * the same channel share one fetch. Schedules are kept as ProgramColumns
+ * sorted by start time and handed out as read only lists, so a cached
+ * program is only an object while it is used.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ScheduleCache {
+
+    /**
+     * Default max amount of programs kept in total.
+     */
+    public static final int DEFAULT_MAX_PROGRAMS = 20000;
+
+    private final LinkedHashMap<Integer, Entry> entries;
+    private final Map<Integer, CompletableFuture<List<Program>>> loading;
+    private final long timeToLive;
+    private final int maxPrograms;
+    private int programCount;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong loads;
+    private final AtomicLong loadNanos;
+    private final List<Listener> listeners;
+    private final ArrayDeque<Change> changes;
+    private final Object delivery;
+
+    /**
+     * Loads a schedule that is not in the cache.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * Load schedule.
+         *
+         * @return Programs in time order.
+         * @throws IOException        I/O error.
+         * @throws XMLStreamException Error while parsing.
+         */
+        List<Program> load() throws IOException, XMLStreamException;
+    }
+
+    /**
+     * Listens for schedules added to or removed from the cache.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called when the cached schedule of a channel has changed.
+         *
+         * @param channelId Id of channel.
+         * @param columns   New schedule, or null if removed.
+         */
+        void scheduleChanged(int channelId, ProgramColumns columns);
+    }
+
+    /**
+     * Cached schedule, its time index and when it was loaded.
+     */
+    private static class Entry {
+        private final ProgramColumns columns;
+        private final ScheduleIndex index;
+        private final long loadedAt;
+
+        private Entry(ProgramColumns columns, ScheduleIndex index,
+                      long loadedAt) {
+            this.columns = columns;
+            this.index = index;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    /**
+     * Change waiting to be told to listeners.
+     */
+    private static class Change {
+        private final int channelId;
+        private final ProgramColumns columns;
+
+        private Change(int channelId, ProgramColumns columns) {
+            this.channelId = channelId;
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Initialize cache.
+     *
+     * @param timeToLive  Time in millis a schedule is fresh.
+     * @param maxPrograms Max amount of programs kept in total.
+     */
+    public ScheduleCache(long timeToLive, int maxPrograms) {
+        this.timeToLive = timeToLive;
+        this.maxPrograms = maxPrograms;
+        entries = new LinkedHashMap<>(64, 0.75f, true);
+        listeners = new CopyOnWriteArrayList<>();
+        changes = new ArrayDeque<>();
+        delivery = new Object();
+        loading = new ConcurrentHashMap<>();
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        loads = new AtomicLong();
+        loadNanos = new AtomicLong();
+    }
+
+    /**
+     * Get schedule of channel, loading it if it is missing or expired. If
+     * the channel is already being loaded the running load is waited for.
+     *
+     * @param channelId Id of channel.
+     * @param loader    Loader used on a miss.
+     * @return Programs of the channel.
+     * @throws IOException        I/O error or interrupted.
+     * @throws XMLStreamException Error while parsing.
+     */
+    public List<Program> get(int channelId, Loader loader)
+            throws IOException, XMLStreamException {
+
+        List<Program> fresh = getFresh(channelId);
+        if (fresh != null) {
+            hits.incrementAndGet();
+            return fresh;
+        }
+        misses.incrementAndGet();
+
+        while (true) {
+            CompletableFuture<List<Program>> created =
+                    new CompletableFuture<>();
+            CompletableFuture<List<Program>> running =
+                    loading.putIfAbsent(channelId, created);
+
+            if (running == null) {
+                return load(channelId, loader, created);
+            }
+
+            try {
+                return running.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Wait was interrupted.");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                // The other load was cancelled, not us, so try again.
+                if (cause instanceof InterruptedIOException
+                        && !Thread.currentThread().isInterrupted()) {
+                    continue;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof XMLStreamException) {
+                    throw (XMLStreamException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Run a load that this thread owns and share the result.
+     *
+     * @param channelId Id of channel.
+     * @param loader    Loader.
+     * @param future    Future others wait on.
+     * @return Loaded programs.
+     * @throws IOException        I/O error or interrupted.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private List<Program> load(int channelId, Loader loader,
+                               CompletableFuture<List<Program>> future)
+            throws IOException, XMLStreamException {
+
+        long start = System.nanoTime();
+        try {
+            List<Program> loaded = loader.load();
+            loads.incrementAndGet();
+            loadNanos.addAndGet(System.nanoTime() - start);
+            List<Program> programs = put(channelId, loaded,
+                    System.currentTimeMillis());
+            future.complete(programs);
+            return programs;
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(channelId, future);
+        }
+    }
+
+    /**
+     * Get schedule if it is cached and not expired.
+     *
+     * @param channelId Id of channel.
+     * @return Programs, or null.
+     */
+    public synchronized List<Program> getFresh(int channelId) {
+        Entry entry = entries.get(channelId);
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt
+                >= timeToLive) {
+            return null;
+        }
+        return entry.columns.asList();
+    }
+
+    /**
+     * Get schedule if it is cached, even if expired.
+     *
+     * @param channelId Id of channel.
+     * @return Programs, or null.
+     */
+    public synchronized List<Program> getStale(int channelId) {
+        Entry entry = entries.get(channelId);
+        return entry == null ? null : entry.columns.asList();
+    }
+
+    /**
+     * Add schedule and drop least recently used schedules if over the
+     * program limit.
+     *
+     * @param channelId Id of channel.
+     * @param programs  Programs of channel, in any order.
+     * @param loadedAt  Time in millis the schedule was loaded.
+     * @return Cached programs in start time order.
+     */
+    public List<Program> put(int channelId, List<Program> programs,
+                             long loadedAt) {
+
+        ProgramColumns columns = ProgramColumns.sortedByStart(programs);
+        ScheduleIndex index = new ScheduleIndex(columns);
+        synchronized (this) {
+            Entry old = entries.put(channelId, new Entry(columns, index,
+                    loadedAt));
+            if (old != null) {
+                programCount -= old.columns.size();
+            }
+            programCount += columns.size();
+            changes.add(new Change(channelId, columns));
+
+            Iterator<Map.Entry<Integer, Entry>> it =
+                    entries.entrySet().iterator();
+            while (programCount > maxPrograms && it.hasNext()) {
+                Map.Entry<Integer, Entry> eldest = it.next();
+                if (eldest.getKey() == channelId) {
+                    continue;
+                }
+                programCount -= eldest.getValue().columns.size();
+                it.remove();
+                changes.add(new Change(eldest.getKey(), null));
+            }
+        }
+        notifyListeners();
+        return columns.asList();
+    }
+
+    /**
+     * Remove schedule of channel so the next get loads it again.
+     *
+     * @param channelId Id of channel.
+     */
+    public void invalidate(int channelId) {
+        synchronized (this) {
+            Entry old = entries.remove(channelId);
+            if (old == null) {
+                return;
+            }
+            programCount -= old.columns.size();
+            changes.add(new Change(channelId, null));
+        }
+        notifyListeners();
+    }
+
+    /**
+     * Add listener for schedules added to or removed from the cache.
+     *
+     * @param listener Listener to add.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Tell listeners about queued changes. Listeners are called without
+     * holding the cache lock, so they may use the cache. Changes are told
+     * one at a time in the order they were made.
+     */
+    private void notifyListeners() {
+        synchronized (delivery) {
+            while (true) {
+                Change change;
+                synchronized (this) {
+                    change = changes.poll();
+                }
+                if (change == null) {
+                    return;
+                }
+                for (Listener listener : listeners) {
+                    listener.scheduleChanged(change.channelId,
+                            change.columns);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mark schedule of channel as expired. It is still returned by getStale
+     * until it has been loaded again.
+     *
+     * @param channelId Id of channel.
+     */
+    public synchronized void expire(int channelId) {
+        Entry entry = entries.get(channelId);
+        if (entry != null) {
+            entries.put(channelId, new Entry(entry.columns, entry.index,
+                    0));
+        }
+    }
+
+    /**
+     * Get time index of a cached schedule, even if expired.
+     *
+     * @param channelId Id of channel.
+     * @return Index, or null.
+     */
+    public synchronized ScheduleIndex getIndex(int channelId) {
+        Entry entry = entries.get(channelId);
+        return entry == null ? null : entry.index;
+    }
+
+    /**
+     * Get time indexes of all cached schedules.
+     *
+     * @return Indexes keyed by channel id.
+     */
+    public synchronized Map<Integer, ScheduleIndex> getIndexes() {
+        HashMap<Integer, ScheduleIndex> all = new HashMap<>();
+        for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+            all.put(e.getKey(), e.getValue().index);
+        }
+        return all;
+    }
+
+    /**
+     * Get all cached schedules.
+     *
+     * @return Read only schedules keyed by channel id.
+     */
+    public synchronized Map<Integer, List<Program>> getAll() {
+        HashMap<Integer, List<Program>> all = new HashMap<>();
+        for (Map.Entry<Integer, Entry> e : entries.entrySet()) {
+            all.put(e.getKey(), e.getValue().columns.asList());
+        }
+        return all;
+    }
+
+    /**
+     * Get amount of gets served from the cache.
+     *
+     * @return Amount of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get amount of gets that loaded or waited for a load.
+     *
+     * @return Amount of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get average time of finished loads.
+     *
+     * @return Average load time in millis, 0 if nothing has been loaded.
+     */
+    public double getAverageLoadMillis() {
+        long count = loads.get();
+        return count == 0 ? 0 : loadNanos.get() / 1e6 / count;
+    }
+}
@@ -0,0 +1,234 @@
+package Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of a schedule for time queries. It refers to the rows of a
+ * ProgramColumns sorted by start time and keeps a tree with the largest
+ * end time of each range of rows, so a lookup skips every range that has
+ * ended and costs O(log n) even if a long program overlaps many others.
+ * Programs are created only for the rows that are returned.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ScheduleIndex {
+
+    private final ProgramColumns columns;
+    private final int size;
+    private final int leaves;
+
+    /**
+     * Largest end time of each range of rows. Node 1 covers all rows, node
+     * n has the children 2n and 2n + 1, and row i is node leaves + i.
+     */
+    private final long[] maxEnds;
+
+    /**
+     * Build index of a schedule.
+     *
+     * @param columns Programs of a channel in start time order. They must
+     *                not be changed while the index is used.
+     */
+    public ScheduleIndex(ProgramColumns columns) {
+        this.columns = columns;
+        size = columns.size();
+        int n = 1;
+        while (n < size) {
+            n *= 2;
+        }
+        leaves = n;
+        maxEnds = new long[2 * leaves];
+        Arrays.fill(maxEnds, Long.MIN_VALUE);
+        for (int i = 0; i < size; i++) {
+            maxEnds[leaves + i] = columns.getEnd(i);
+        }
+        for (int node = leaves - 1; node > 0; node--) {
+            maxEnds[node] = Math.max(maxEnds[2 * node],
+                    maxEnds[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Get amount of programs in the index.
+     *
+     * @return Amount of programs.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get program airing at a time. If programs overlap the one that
+     * started last is returned.
+     *
+     * @param time Time in epoch millis.
+     * @return Program, or null if nothing airs at the time.
+     */
+    public Program at(long time) {
+        int row = lastEndingAfter(1, 0, leaves, upperBound(time), time);
+        return row < 0 ? null : columns.getProgram(row);
+    }
+
+    /**
+     * Get programs starting after a time.
+     *
+     * @param time  Time in epoch millis.
+     * @param count Max amount of programs.
+     * @return Programs in start time order.
+     */
+    public List<Program> next(long time, int count) {
+        int first = upperBound(time);
+        int last = (int) Math.min(size, (long) first + count);
+        return new ArrayList<>(columns.asList().subList(first, last));
+    }
+
+    /**
+     * Get programs that air some time between two times.
+     *
+     * @param from Start of interval in epoch millis, inclusive.
+     * @param to   End of interval in epoch millis, exclusive.
+     * @return Programs in start time order.
+     */
+    public List<Program> overlapping(long from, long to) {
+        ArrayList<Program> result = new ArrayList<>();
+        addEndingAfter(1, 0, leaves, lowerBound(to), from, result);
+        return result;
+    }
+
+    /**
+     * Get program airing at a time on each channel.
+     *
+     * @param indexes Index of each channel, keyed by channel id.
+     * @param time    Time in epoch millis.
+     * @return Airing programs keyed by channel id, channels without one
+     * are left out.
+     */
+    public static Map<Integer, Program> at(
+            Map<Integer, ScheduleIndex> indexes, long time) {
+        HashMap<Integer, Program> result = new HashMap<>();
+        for (Map.Entry<Integer, ScheduleIndex> e : indexes.entrySet()) {
+            Program program = e.getValue().at(time);
+            if (program != null) {
+                result.put(e.getKey(), program);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get programs that air some time between two times on each channel.
+     *
+     * @param indexes Index of each channel, keyed by channel id.
+     * @param from    Start of interval in epoch millis, inclusive.
+     * @param to      End of interval in epoch millis, exclusive.
+     * @return Programs keyed by channel id, channels without any are left
+     * out.
+     */
+    public static Map<Integer, List<Program>> overlapping(
+            Map<Integer, ScheduleIndex> indexes, long from, long to) {
+        HashMap<Integer, List<Program>> result = new HashMap<>();
+        for (Map.Entry<Integer, ScheduleIndex> e : indexes.entrySet()) {
+            List<Program> programs = e.getValue().overlapping(from, to);
+            if (!programs.isEmpty()) {
+                result.put(e.getKey(), programs);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find index of the first program starting after a time.
+     *
+     * @param time Time in epoch millis.
+     * @return Index, or size if none.
+     */
+    private int upperBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.getStart(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find index of the first program starting at or after a time.
+     *
+     * @param time Time in epoch millis.
+     * @return Index, or size if none.
+     */
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (columns.getStart(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find the last row before a limit that ends after a time. Ranges that
+     * have all ended are skipped.
+     *
+     * @param node  Tree node.
+     * @param from  First row covered by the node.
+     * @param to    Row after the last one covered by the node.
+     * @param limit Row after the last one to look at.
+     * @param time  Time in epoch millis.
+     * @return Row, or -1 if none.
+     */
+    private int lastEndingAfter(int node, int from, int to, int limit,
+                                long time) {
+        if (from >= limit || maxEnds[node] <= time) {
+            return -1;
+        }
+        if (node >= leaves) {
+            return from;
+        }
+        int mid = (from + to) >>> 1;
+        int row = lastEndingAfter(2 * node + 1, mid, to, limit, time);
+        if (row < 0) {
+            row = lastEndingAfter(2 * node, from, mid, limit, time);
+        }
+        return row;
+    }
+
+    /**
+     * Add the rows before a limit that end after a time, in row order.
+     * Ranges that have all ended are skipped.
+     *
+     * @param node   Tree node.
+     * @param from   First row covered by the node.
+     * @param to     Row after the last one covered by the node.
+     * @param limit  Row after the last one to look at.
+     * @param time   Time in epoch millis.
+     * @param result List to add programs to.
+     */
+    private void addEndingAfter(int node, int from, int to, int limit,
+                                long time, List<Program> result) {
+        if (from >= limit || maxEnds[node] <= time) {
+            return;
+        }
+        if (node >= leaves) {
+            result.add(columns.getProgram(from));
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        addEndingAfter(2 * node, from, mid, limit, time, result);
+        addEndingAfter(2 * node + 1, mid, to, limit, time, result);
+    }
+}
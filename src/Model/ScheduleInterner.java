@@ -0,0 +1,82 @@
+package Model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interning table for parsed schedules, shared by all channels. Equal
+ * strings and equal series metadata are stored once. The table is cleared
+ * when the channel list is refreshed and when it grows too large, which
+ * only loses sharing with programs parsed before.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ScheduleInterner {
+
+    /**
+     * Max amount of entries before the table is cleared.
+     */
+    public static final int MAX_ENTRIES = 50000;
+
+    private final ConcurrentHashMap<String, String> strings;
+    private final ConcurrentHashMap<Series, Series> series;
+
+    /**
+     * Initialize empty table.
+     */
+    public ScheduleInterner() {
+        strings = new ConcurrentHashMap<>();
+        series = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the shared copy of a string.
+     *
+     * @param s String, may be null.
+     * @return Equal shared string, or null.
+     */
+    public String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        if (strings.size() > MAX_ENTRIES) {
+            strings.clear();
+        }
+        String shared = strings.putIfAbsent(s, s);
+        return shared == null ? s : shared;
+    }
+
+    /**
+     * Get the shared series with the given metadata.
+     *
+     * @param name        Title.
+     * @param description Description, or null.
+     * @param imageURL    URL of artwork, or null.
+     * @return Shared series.
+     */
+    public Series series(String name, String description, String imageURL) {
+        Series candidate = new Series(intern(name), intern(description),
+                intern(imageURL));
+        if (series.size() > MAX_ENTRIES) {
+            series.clear();
+        }
+        Series shared = series.putIfAbsent(candidate, candidate);
+        return shared == null ? candidate : shared;
+    }
+
+    /**
+     * Get amount of shared series.
+     *
+     * @return Amount of series.
+     */
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        strings.clear();
+        series.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package Model;
+
+import java.util.ArrayList;
+
+/**
+ * One parsed page of scheduled episodes.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class SchedulePage {
+
+    private final int totalPages;
+    private final ArrayList<Program> programs;
+
+    /**
+     * Create page.
+     *
+     * @param totalPages Total amount of pages for the day.
+     * @param programs   Programs on this page.
+     */
+    public SchedulePage(int totalPages, ArrayList<Program> programs) {
+        this.totalPages = totalPages;
+        this.programs = programs;
+    }
+
+    /**
+     * Get total amount of pages for the day.
+     *
+     * @return Total amount of pages.
+     */
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    /**
+     * Get programs on this page.
+     *
+     * @return List of programs.
+     */
+    public ArrayList<Program> getPrograms() {
+        return programs;
+    }
+}
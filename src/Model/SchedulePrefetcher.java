@@ -0,0 +1,289 @@
+package Model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Loads schedules of all channels in the background so they are cached
+ * before the user selects them. Channels are taken from a priority queue
+ * ordered by recently used channels first and then by distance to the
+ * selected row. No new load is started while the user is loading a
+ * schedule or when nobody has used the program for a while. A channel is
+ * queued again when its schedule has expired.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class SchedulePrefetcher {
+
+    /**
+     * Default amount of schedules prefetched at the same time.
+     */
+    public static final int DEFAULT_THREADS = 2;
+
+    private static final long IDLE_TIME = 1000 * 60 * 10;
+    private static final int RECENT_SIZE = 5;
+
+    private final TaskEngine engine;
+    private final Fetcher fetcher;
+    private final Runnable onDrained;
+    private final int threads;
+    private final long refreshAfter;
+
+    private final ReentrantLock lock;
+    private final Condition changed;
+    private final PriorityQueue<Task> queue;
+    private final ArrayDeque<Integer> recent;
+    private List<Channel> channels;
+    private int selectedRow;
+    private int userLoads;
+    private int running;
+    private long lastActivity;
+    private boolean started;
+
+    /**
+     * Fetches the schedule of a channel into the cache.
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+
+        /**
+         * Fetch schedule.
+         *
+         * @param channel Channel to fetch schedule for.
+         * @throws IOException        I/O error.
+         * @throws XMLStreamException Error while parsing.
+         */
+        void fetch(Channel channel) throws IOException, XMLStreamException;
+    }
+
+    /**
+     * Channel waiting to be prefetched.
+     */
+    private static class Task {
+        private final Channel channel;
+        private final int row;
+        private int priority;
+
+        private Task(Channel channel, int row) {
+            this.channel = channel;
+            this.row = row;
+        }
+    }
+
+    /**
+     * Initialize prefetcher. Threads are started when channels are set.
+     *
+     * @param engine    Engine that runs the prefetch loops.
+     * @param fetcher   Fetches a schedule into the cache.
+     * @param onDrained    Called when all channels have been prefetched.
+     * @param threads      Max amount of schedules fetched at the same time.
+     * @param refreshAfter Milliseconds until a prefetched schedule is
+     *                     queued again.
+     */
+    public SchedulePrefetcher(TaskEngine engine, Fetcher fetcher,
+                              Runnable onDrained, int threads,
+                              long refreshAfter) {
+        this.engine = engine;
+        this.fetcher = fetcher;
+        this.onDrained = onDrained;
+        this.threads = Math.max(1, threads);
+        this.refreshAfter = refreshAfter;
+        lock = new ReentrantLock();
+        changed = lock.newCondition();
+        queue = new PriorityQueue<>(
+                Comparator.comparingInt((Task t) -> t.priority)
+                        .thenComparingInt(t -> t.row));
+        recent = new ArrayDeque<>();
+        channels = new ArrayList<>();
+        lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Queue all channels for prefetching, replacing earlier ones.
+     *
+     * @param channels Channels in table order.
+     */
+    public void setChannels(List<Channel> channels) {
+        lock.lock();
+        try {
+            this.channels = new ArrayList<>(channels);
+            queue.clear();
+            for (int row = 0; row < channels.size(); row++) {
+                Task task = new Task(channels.get(row), row);
+                task.priority = priorityOf(task);
+                queue.add(task);
+            }
+            if (!started) {
+                started = true;
+                for (int i = 0; i < threads; i++) {
+                    engine.execute(this::work);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a channel again, for example when its schedule has expired.
+     * Nothing is done if the channel is already queued or not known.
+     *
+     * @param channelId Id of channel.
+     */
+    public void requeue(int channelId) {
+        lock.lock();
+        try {
+            for (Task task : queue) {
+                if (task.channel.getChannelId() == channelId) {
+                    return;
+                }
+            }
+            for (int row = 0; row < channels.size(); row++) {
+                if (channels.get(row).getChannelId() == channelId) {
+                    Task task = new Task(channels.get(row), row);
+                    task.priority = priorityOf(task);
+                    queue.add(task);
+                    changed.signalAll();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tell prefetcher that the user selected a channel, so channels close
+     * to it are prefetched first.
+     *
+     * @param row       Selected row.
+     * @param channelId Id of selected channel.
+     */
+    public void channelSelected(int row, int channelId) {
+        lock.lock();
+        try {
+            selectedRow = row;
+            recent.remove(channelId);
+            recent.addFirst(channelId);
+            while (recent.size() > RECENT_SIZE) {
+                recent.removeLast();
+            }
+            lastActivity = System.currentTimeMillis();
+
+            ArrayList<Task> pending = new ArrayList<>(queue);
+            queue.clear();
+            for (Task task : pending) {
+                task.priority = priorityOf(task);
+                queue.add(task);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tell prefetcher that a user load started. No prefetch is started
+     * until it has finished.
+     */
+    public void userLoadStarted() {
+        lock.lock();
+        try {
+            userLoads++;
+            lastActivity = System.currentTimeMillis();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tell prefetcher that a user load finished.
+     */
+    public void userLoadFinished() {
+        lock.lock();
+        try {
+            userLoads--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get priority of task, lower is sooner.
+     *
+     * @param task Task.
+     * @return Priority.
+     */
+    private int priorityOf(Task task) {
+        int rank = 0;
+        for (int id : recent) {
+            if (id == task.channel.getChannelId()) {
+                return rank;
+            }
+            rank++;
+        }
+        return RECENT_SIZE + Math.abs(task.row - selectedRow);
+    }
+
+    /**
+     * Loop of a prefetch thread.
+     */
+    private void work() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while (queue.isEmpty() || userLoads > 0 || isIdle()) {
+                    changed.await();
+                }
+                task = queue.poll();
+                running++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            boolean drained;
+            try {
+                fetcher.fetch(task.channel);
+            } catch (IOException | XMLStreamException
+                    | RuntimeException e) {
+                System.out.println("Could not prefetch "
+                        + task.channel.getName() + ": " + e.getMessage());
+            } finally {
+                int channelId = task.channel.getChannelId();
+                engine.schedule(() -> requeue(channelId), refreshAfter);
+
+                lock.lock();
+                try {
+                    running--;
+                    drained = queue.isEmpty() && running == 0;
+                } finally {
+                    lock.unlock();
+                }
+            }
+            if (drained) {
+                onDrained.run();
+            }
+        }
+    }
+
+    /**
+     * Check if nobody has used the program for a while.
+     *
+     * @return True if idle.
+     */
+    private boolean isIdle() {
+        return System.currentTimeMillis() - lastActivity > IDLE_TIME;
+    }
+}
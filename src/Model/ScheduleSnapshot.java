@@ -0,0 +1,242 @@
+package Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of channels and their schedules, so the program
+ * can show the latest known data right away at startup. The file has a
+ * header with magic number, version, payload length and CRC32, and is
+ * ignored if any of them does not match.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class ScheduleSnapshot {
+
+    private static final int MAGIC = 0x52414449;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+
+    private final Path file;
+    private final ScheduleInterner interner;
+
+    /**
+     * Initialize snapshot.
+     *
+     * @param file     File the snapshot is stored in.
+     * @param interner Table that read series are shared through.
+     */
+    public ScheduleSnapshot(Path file, ScheduleInterner interner) {
+        this.file = file;
+        this.interner = interner;
+    }
+
+    /**
+     * Write snapshot of channels and their schedules.
+     *
+     * @param channels  Channels to write.
+     * @param schedules Schedules keyed by channel id.
+     * @throws IOException If the snapshot could not be written.
+     */
+    public synchronized void write(List<Channel> channels,
+                                   Map<Integer, ? extends List<Program>>
+                                           schedules) throws IOException {
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(payload);
+
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(channels.size());
+        for (Channel ch : channels) {
+            out.writeInt(ch.getChannelId());
+            writeString(out, ch.getName());
+            writeString(out, ch.getImageURL());
+
+            List<Program> programs = schedules.get(ch.getChannelId());
+            if (programs == null) {
+                programs = new ArrayList<>();
+            }
+            out.writeInt(programs.size());
+            for (Program p : programs) {
+                writeString(out, p.getName());
+                writeString(out, p.getDescription());
+                out.writeLong(p.getStartMillis());
+                out.writeLong(p.getEndMillis());
+                writeString(out, p.getImageURL());
+            }
+        }
+        out.flush();
+
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = Files.createTempFile(
+                file.toAbsolutePath().getParent(), "snapshot", ".tmp");
+        try {
+            try (OutputStream fileOut = Files.newOutputStream(tmp);
+                 DataOutputStream header = new DataOutputStream(fileOut)) {
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+                header.writeInt(bytes.length);
+                header.writeLong(crc.getValue());
+                header.write(bytes);
+            }
+            try {
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Read snapshot. Channels are returned with their programs added and no
+     * images loaded.
+     *
+     * @return Channels, empty if there is no valid snapshot.
+     */
+    public synchronized ArrayList<Channel> read() {
+
+        try (FileChannel fc = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+
+            long size = fc.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return new ArrayList<>();
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && fc.read(buffer) >= 0) {
+                // Keep reading until the whole file is in the buffer.
+            }
+            buffer.flip();
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return new ArrayList<>();
+            }
+            int length = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (length != buffer.remaining()) {
+                return new ArrayList<>();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice());
+            if (crc.getValue() != checksum) {
+                return new ArrayList<>();
+            }
+
+            return readChannels(buffer);
+
+        } catch (NoSuchFileException e) {
+            return new ArrayList<>();
+        } catch (IOException | BufferUnderflowException
+                | IllegalArgumentException e) {
+            System.out.println("Ignoring snapshot: " + e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Read channels from a checked payload.
+     *
+     * @param buffer Buffer positioned at the payload.
+     * @return Channels with programs.
+     */
+    private ArrayList<Channel> readChannels(ByteBuffer buffer) {
+
+        buffer.getLong();
+        int channelCount = readCount(buffer);
+
+        ArrayList<Channel> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            Channel ch = new Channel(buffer.getInt(), readString(buffer));
+            ch.setImageURL(readString(buffer));
+
+            int programCount = readCount(buffer);
+            for (int j = 0; j < programCount; j++) {
+                Program p = new Program();
+                String name = readString(buffer);
+                String description = readString(buffer);
+                p.setStartTime(buffer.getLong());
+                p.setEndTime(buffer.getLong());
+                p.setSeries(interner.series(name, description,
+                        readString(buffer)));
+                ch.getPrograms().add(p);
+            }
+            channels.add(ch);
+        }
+        return channels;
+    }
+
+    /**
+     * Read an element count and check that it is sane.
+     *
+     * @param buffer Buffer to read from.
+     * @return Count.
+     */
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Bad count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Write nullable string as length and UTF-8 bytes.
+     *
+     * @param out Stream to write to.
+     * @param s   String to write.
+     * @throws IOException If writing failed.
+     */
+    private static void writeString(DataOutputStream out, String s)
+            throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Read nullable string written by writeString.
+     *
+     * @param buffer Buffer to read from.
+     * @return String or null.
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,135 @@
+package Model;
+
+import java.awt.*;
+import java.util.Objects;
+
+/**
+ * Metadata shared by all episodes of a series: title, description and
+ * artwork. Instances are interned by ScheduleInterner, so a series that
+ * airs many times is stored once.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class Series {
+
+    /**
+     * Series without metadata, shared by all programs that have not been
+     * given any. It never gets artwork.
+     */
+    public static final Series EMPTY = new Series(null, null, null);
+
+    private final String name;
+    private final String description;
+    private final String imageURL;
+    private volatile Image image;
+
+    /**
+     * Create series.
+     *
+     * @param name        Title.
+     * @param description Description, or null.
+     * @param imageURL    URL of artwork, or null.
+     */
+    public Series(String name, String description, String imageURL) {
+        this.name = name;
+        this.description = description;
+        this.imageURL = imageURL;
+    }
+
+    /**
+     * Get title.
+     *
+     * @return Title.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get description.
+     *
+     * @return Description, or null.
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Get URL of artwork.
+     *
+     * @return URL, or null.
+     */
+    public String getImageURL() {
+        return imageURL;
+    }
+
+    /**
+     * Get loaded artwork.
+     *
+     * @return Image, or null if not loaded.
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Set loaded artwork, shared by all episodes of the series.
+     *
+     * @param image Image.
+     * @throws UnsupportedOperationException If this is EMPTY.
+     */
+    public void setImage(Image image) {
+        if (this == EMPTY) {
+            throw new UnsupportedOperationException(
+                    "The empty series can not get an image.");
+        }
+        this.image = image;
+    }
+
+    /**
+     * Create series with other metadata. The loaded artwork is kept if the
+     * URL is the same.
+     *
+     * @param name        Title.
+     * @param description Description, or null.
+     * @param imageURL    URL of artwork, or null.
+     * @return New series.
+     */
+    public Series with(String name, String description, String imageURL) {
+        Series series = new Series(name, description, imageURL);
+        if (Objects.equals(imageURL, this.imageURL)) {
+            series.image = image;
+        }
+        return series;
+    }
+
+    /**
+     * Series are equal if their metadata is.
+     *
+     * @param o Object to compare with.
+     * @return True if equal.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Series)) {
+            return false;
+        }
+        Series other = (Series) o;
+        return Objects.equals(name, other.name)
+                && Objects.equals(description, other.description)
+                && Objects.equals(imageURL, other.imageURL);
+    }
+
+    /**
+     * Hash of the metadata.
+     *
+     * @return Hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, description, imageURL);
+    }
+}
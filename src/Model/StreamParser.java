@@ -0,0 +1,277 @@
+package Model;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * Streaming parser for API responses. Reads channel and scheduledepisode
+ * elements straight into objects without building a document tree.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class StreamParser {
+
+    private static final ThreadLocal<XMLInputFactory> FACTORY =
+            ThreadLocal.withInitial(() -> {
+                XMLInputFactory factory = XMLInputFactory.newFactory();
+                factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+                factory.setProperty(
+                        XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                        false);
+                factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+                return factory;
+            });
+
+    private final ScheduleInterner interner;
+
+    /**
+     * Initialize parser.
+     *
+     * @param interner Table that parsed series are shared through.
+     */
+    public StreamParser(ScheduleInterner interner) {
+        this.interner = interner;
+    }
+
+    /**
+     * Parse channels from a channel list response.
+     *
+     * @param in Stream with the response.
+     * @return List of channels, image URL set but no image loaded.
+     * @throws XMLStreamException Error while parsing.
+     */
+    public ArrayList<Channel> parseChannels(InputStream in)
+            throws XMLStreamException {
+
+        ArrayList<Channel> channels = new ArrayList<>();
+        XMLStreamReader reader = FACTORY.get().createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && reader.getLocalName().equals("channel")) {
+                    channels.add(readChannel(reader));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return channels;
+    }
+
+    /**
+     * Parse one page of scheduled episodes. Episodes that do not overlap
+     * the given horizon are skipped as soon as their times are read.
+     *
+     * @param in   Stream with the response.
+     * @param from Start of horizon in epoch millis.
+     * @param to   End of horizon in epoch millis.
+     * @return Parsed page.
+     * @throws XMLStreamException Error while parsing.
+     */
+    public SchedulePage parseSchedulePage(InputStream in, long from, long to)
+            throws XMLStreamException {
+
+        ArrayList<Program> programs = new ArrayList<>();
+        int totalPages = 1;
+        XMLStreamReader reader = FACTORY.get().createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "totalpages" -> totalPages =
+                            Integer.parseInt(reader.getElementText().trim());
+                    case "scheduledepisode" -> {
+                        Program program = readEpisode(reader, from, to);
+                        if (program != null) {
+                            programs.add(program);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new SchedulePage(totalPages, programs);
+    }
+
+    /**
+     * Parse one page of the right now listing, with the current and next
+     * episode of each channel.
+     *
+     * @param in Stream with the response.
+     * @return Parsed page.
+     * @throws XMLStreamException Error while parsing.
+     */
+    public NowPlayingPage parseRightNow(InputStream in)
+            throws XMLStreamException {
+
+        ArrayList<NowPlaying> channels = new ArrayList<>();
+        int totalPages = 1;
+        XMLStreamReader reader = FACTORY.get().createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "totalpages" -> totalPages =
+                            Integer.parseInt(reader.getElementText().trim());
+                    case "channel" -> channels.add(readNowPlaying(reader));
+                    default -> {
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return new NowPlayingPage(totalPages, channels);
+    }
+
+    /**
+     * Read a channel element of the right now listing. Reader should be at
+     * its start tag and is left at its end tag.
+     *
+     * @param reader Reader.
+     * @return Now playing of the channel.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private NowPlaying readNowPlaying(XMLStreamReader reader)
+            throws XMLStreamException {
+
+        int id = Integer.parseInt(reader.getAttributeValue(null, "id"));
+        Program current = null;
+        Program next = null;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "currentscheduledepisode" -> current =
+                        readEpisode(reader, Long.MIN_VALUE, Long.MAX_VALUE);
+                case "nextscheduledepisode" -> next =
+                        readEpisode(reader, Long.MIN_VALUE, Long.MAX_VALUE);
+                default -> skipElement(reader);
+            }
+        }
+        return new NowPlaying(id, current, next);
+    }
+
+    /**
+     * Read a channel element. Reader should be at its start tag and is left
+     * at its end tag.
+     *
+     * @param reader Reader.
+     * @return Channel.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private Channel readChannel(XMLStreamReader reader)
+            throws XMLStreamException {
+
+        int id = Integer.parseInt(reader.getAttributeValue(null, "id"));
+        Channel channel = new Channel(id,
+                reader.getAttributeValue(null, "name"));
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (reader.getLocalName().equals("image")) {
+                channel.setImageURL(reader.getElementText().trim());
+            } else {
+                skipElement(reader);
+            }
+        }
+        return channel;
+    }
+
+    /**
+     * Read a scheduledepisode element. Reader should be at its start tag and
+     * is left at its end tag.
+     *
+     * @param reader Reader.
+     * @param from   Start of horizon in epoch millis.
+     * @param to     End of horizon in epoch millis.
+     * @return Program, or null if it is outside of the horizon.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private Program readEpisode(XMLStreamReader reader, long from, long to)
+            throws XMLStreamException {
+
+        String title = null;
+        String description = null;
+        String imageURL = null;
+        long startTime = Program.NO_TIME;
+        long endTime = Program.NO_TIME;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "title" -> title = reader.getElementText();
+                case "description" -> {
+                    String desc = reader.getElementText();
+                    if (!desc.isEmpty()) {
+                        description = desc;
+                    }
+                }
+                case "starttimeutc" -> {
+                    startTime = Program.parseUtc(reader.getElementText());
+                    if (startTime != Program.NO_TIME && startTime >= to) {
+                        return skipEpisode(reader);
+                    }
+                }
+                case "endtimeutc" -> {
+                    endTime = Program.parseUtc(reader.getElementText());
+                    if (endTime != Program.NO_TIME && endTime <= from) {
+                        return skipEpisode(reader);
+                    }
+                }
+                case "imageurl" -> imageURL = reader.getElementText().trim();
+                default -> skipElement(reader);
+            }
+        }
+
+        Program program = new Program();
+        program.setSeries(interner.series(title, description, imageURL));
+        program.setStartTime(startTime);
+        program.setEndTime(endTime);
+        return program;
+    }
+
+    /**
+     * Skip the rest of an episode.
+     *
+     * @param reader Reader inside an episode, left at its end tag.
+     * @return Null.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private Program skipEpisode(XMLStreamReader reader)
+            throws XMLStreamException {
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            skipElement(reader);
+        }
+        return null;
+    }
+
+    /**
+     * Skip the current element and all its children.
+     *
+     * @param reader Reader at a start tag, left at the matching end tag.
+     * @throws XMLStreamException Error while parsing.
+     */
+    private void skipElement(XMLStreamReader reader)
+            throws XMLStreamException {
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package Model;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs all blocking network and parse work of the model. Tasks run on
+ * virtual threads when the runtime has them and on daemon threads
+ * otherwise. Work belonging to one user action is forked in a scope, so
+ * it is cancelled together and waited for in one place.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class TaskEngine {
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Initialize engine.
+     */
+    public TaskEngine() {
+        ExecutorService virtualExecutor = newVirtualExecutor();
+        executor = virtualExecutor != null ? virtualExecutor
+                : Executors.newCachedThreadPool(r -> {
+                    Thread thread = new Thread(r, "task");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create an executor with one virtual thread per task, if the runtime
+     * supports it.
+     *
+     * @return Executor, or null if virtual threads are not available.
+     */
+    private static ExecutorService newVirtualExecutor() {
+        try {
+            Method method = Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Run a task, for example a SwingWorker. A SwingWorker still hands its
+     * results to the EDT through publish and done.
+     *
+     * @param task Task to run.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Run a task that can be cancelled.
+     *
+     * @param task Task to run.
+     * @return Future of the task.
+     */
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Run a task once after a delay.
+     *
+     * @param task  Task to run, on the engine and not on the scheduler.
+     * @param delay Delay in milliseconds.
+     * @return Future that can be cancelled to stop the task.
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return scheduler.schedule(() -> executor.execute(task), delay,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open a scope for the work of one user action.
+     *
+     * @param maxRunning Max amount of forked tasks running at the same time.
+     * @return New scope, to be closed when the action is done.
+     */
+    public Scope openScope(int maxRunning) {
+        return new Scope(Math.max(1, maxRunning));
+    }
+
+    /**
+     * Group of tasks forked for one user action. A task is only handed to
+     * a thread when one of the scope's permits is free, so tasks start in
+     * fork order and a scope never uses more threads than permits. Closing
+     * the scope cancels all tasks that have not finished and waits for the
+     * running ones, so no task outlives the action.
+     */
+    public class Scope implements AutoCloseable {
+
+        private final int maxRunning;
+        private final Semaphore permits;
+        private final List<Future<?>> futures;
+
+        /**
+         * Initialize scope.
+         *
+         * @param maxRunning Max amount of tasks running at the same time.
+         */
+        private Scope(int maxRunning) {
+            this.maxRunning = maxRunning;
+            permits = new Semaphore(maxRunning, true);
+            futures = new ArrayList<>();
+        }
+
+        /**
+         * Start a task in the scope. Waits on the calling thread until a
+         * permit is free. The permit is given back when the task ends, or
+         * when it is cancelled before it started.
+         *
+         * @param task Task to run.
+         * @param <T>  Result type.
+         * @return Future of the task.
+         * @throws InterruptedIOException If interrupted while waiting. The
+         *                                scope is then closed.
+         */
+        public <T> Future<T> fork(Callable<T> task)
+                throws InterruptedIOException {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Task was interrupted.");
+            }
+
+            AtomicBoolean claimed = new AtomicBoolean();
+            FutureTask<T> future = new FutureTask<>(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            }) {
+                @Override
+                protected void done() {
+                    // Cancelled before the task started.
+                    if (claimed.compareAndSet(false, true)) {
+                        permits.release();
+                    }
+                }
+            };
+            synchronized (futures) {
+                futures.add(future);
+            }
+            executor.execute(future);
+            return future;
+        }
+
+        /**
+         * Start tasks and wait for all results. If one fails the others are
+         * cancelled.
+         *
+         * @param tasks Tasks to run.
+         * @param <T>   Result type.
+         * @return Results in task order.
+         * @throws IOException        If a task failed with an I/O error, or
+         *                            InterruptedIOException if interrupted.
+         * @throws XMLStreamException If a task failed while parsing.
+         */
+        public <T> List<T> forkAll(List<? extends Callable<T>> tasks)
+                throws IOException, XMLStreamException {
+
+            ArrayList<Future<T>> forked = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                forked.add(fork(task));
+            }
+            ArrayList<T> results = new ArrayList<>();
+            for (Future<T> future : forked) {
+                results.add(join(future));
+            }
+            return results;
+        }
+
+        /**
+         * Wait for the result of a forked task. If it failed the whole
+         * scope is cancelled.
+         *
+         * @param future Future from fork.
+         * @param <T>    Result type.
+         * @return Result of the task.
+         * @throws IOException        If the task failed with an I/O error, or
+         *                            InterruptedIOException if interrupted.
+         * @throws XMLStreamException If the task failed while parsing.
+         */
+        public <T> T join(Future<T> future)
+                throws IOException, XMLStreamException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Task was interrupted.");
+            } catch (ExecutionException e) {
+                close();
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof XMLStreamException) {
+                    throw (XMLStreamException) cause;
+                } else if (cause instanceof InterruptedException) {
+                    throw new InterruptedIOException("Task was interrupted.");
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+
+        /**
+         * Cancel all tasks of the scope that have not finished and wait
+         * until the running ones have ended.
+         */
+        @Override
+        public void close() {
+            synchronized (futures) {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+                futures.clear();
+            }
+            permits.acquireUninterruptibly(maxRunning);
+            permits.release(maxRunning);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package View;
 
 import Model.Channel;
+import Model.NowPlaying;
 
 import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Tablemodel for channels.
@@ -13,12 +18,14 @@ import java.util.ArrayList;
 public class ChannelModel extends AbstractTableModel {
 
     private final ArrayList<Channel> channelList;
+    private final HashMap<Integer, NowPlaying> nowPlaying;
 
     /**
      * Initialize ArrayList of channels.
      */
     public ChannelModel() {
         channelList = new ArrayList<>();
+        nowPlaying = new HashMap<>();
     }
 
     /**
@@ -38,7 +45,7 @@ public class ChannelModel extends AbstractTableModel {
      */
     @Override
     public int getColumnCount() {
-        return 1;
+        return 2;
     }
 
     /**
@@ -50,7 +57,15 @@ public class ChannelModel extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        return channelList.get(rowIndex).getName();
+        Channel channel = channelList.get(rowIndex);
+        if (columnIndex == 0) {
+            return channel.getName();
+        }
+        NowPlaying entry = nowPlaying.get(channel.getChannelId());
+        if (entry == null || entry.getCurrent() == null) {
+            return "";
+        }
+        return entry.getCurrent().getName();
     }
 
     /**
@@ -63,6 +78,17 @@ public class ChannelModel extends AbstractTableModel {
         return channelList.get(rowIndex);
     }
 
+    /**
+     * Gets channel with the given id.
+     *
+     * @param channelId Id of channel.
+     * @return Channel, or null if it is not in the table.
+     */
+    public Channel getChannelById(int channelId) {
+        int index = indexOf(channelId, 0);
+        return index == -1 ? null : channelList.get(index);
+    }
+
     /**
      * Adds channel to table.
      *
@@ -70,7 +96,184 @@ public class ChannelModel extends AbstractTableModel {
      */
     public void addChannel(Channel c) {
         channelList.add(c);
-        this.fireTableRowsInserted(channelList.size(), channelList.size());
+        this.fireTableRowsInserted(channelList.size() - 1,
+                channelList.size() - 1);
+    }
+
+    /**
+     * Adds channels to end of table with a single insert event.
+     *
+     * @param added Channels to add.
+     */
+    public void addChannels(List<Channel> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        int first = channelList.size();
+        channelList.addAll(added);
+        this.fireTableRowsInserted(first, channelList.size() - 1);
+    }
+
+    /**
+     * Apply a new channel list as differences to the table. Channels are
+     * identified by id. The longest run of channels that keep their order
+     * stays in place and the others are removed or inserted. Removed
+     * rows get their programs cleared, kept channels are updated and
+     * keep their logo until a new one is loaded, so the selection of the
+     * table is kept.
+     *
+     * @param fresh Channels to show, in order.
+     */
+    public void applyChannels(List<Channel> fresh) {
+        HashMap<Integer, Integer> oldRows = new HashMap<>();
+        for (int i = 0; i < channelList.size(); i++) {
+            oldRows.put(channelList.get(i).getChannelId(), i);
+        }
+        int[] rows = new int[fresh.size()];
+        for (int j = 0; j < fresh.size(); j++) {
+            rows[j] = oldRows.getOrDefault(fresh.get(j).getChannelId(), -1);
+        }
+        boolean[] kept = longestIncreasing(rows);
+        HashSet<Integer> keptIds = new HashSet<>();
+        for (int j = 0; j < fresh.size(); j++) {
+            if (kept[j]) {
+                keptIds.add(fresh.get(j).getChannelId());
+            }
+        }
+
+        for (int end = channelList.size() - 1; end >= 0; end--) {
+            if (keptIds.contains(channelList.get(end).getChannelId())) {
+                continue;
+            }
+            int start = end;
+            while (start > 0 && !keptIds.contains(
+                    channelList.get(start - 1).getChannelId())) {
+                start--;
+            }
+            List<Channel> removed = channelList.subList(start, end + 1);
+            for (Channel c : removed) {
+                c.getPrograms().clear();
+            }
+            removed.clear();
+            this.fireTableRowsDeleted(start, end);
+            end = start;
+        }
+
+        int firstUpdated = -1;
+        int lastUpdated = -1;
+        for (int j = 0; j < fresh.size(); j++) {
+
+            if (!kept[j]) {
+                int end = j;
+                while (end + 1 < fresh.size() && !kept[end + 1]) {
+                    end++;
+                }
+                channelList.addAll(j, fresh.subList(j, end + 1));
+                this.fireTableRowsInserted(j, end);
+                j = end;
+                continue;
+            }
+
+            Channel old = channelList.get(j);
+            Channel c = fresh.get(j);
+            if (old != c) {
+                if (c.getImage() == null && Objects.equals(
+                        old.getImageURL(), c.getImageURL())) {
+                    c.setImage(old.getImage());
+                }
+                channelList.set(j, c);
+                if (firstUpdated == -1) {
+                    firstUpdated = j;
+                }
+                lastUpdated = j;
+            }
+        }
+        if (firstUpdated != -1) {
+            this.fireTableRowsUpdated(firstUpdated, lastUpdated);
+        }
+    }
+
+    /**
+     * Find the longest increasing subsequence of old rows, that is the
+     * largest set of channels that can stay in place.
+     *
+     * @param rows Old row of each new channel, or -1 if it is new.
+     * @return True for each new channel that stays in place.
+     */
+    private static boolean[] longestIncreasing(int[] rows) {
+        int[] tails = new int[rows.length];
+        int[] previous = new int[rows.length];
+        int length = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] < 0) {
+                continue;
+            }
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (rows[tails[mid]] < rows[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        boolean[] kept = new boolean[rows.length];
+        for (int i = length > 0 ? tails[length - 1] : -1; i != -1;
+             i = previous[i]) {
+            kept[i] = true;
+        }
+        return kept;
+    }
+
+    /**
+     * Find row of channel with the given id.
+     *
+     * @param channelId Id of channel.
+     * @param from      First row to search.
+     * @return Row index, or -1 if not found.
+     */
+    private int indexOf(int channelId, int from) {
+        for (int i = from; i < channelList.size(); i++) {
+            if (channelList.get(i).getChannelId() == channelId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Notify that a channel has changed, for example got its logo.
+     *
+     * @param c Changed channel.
+     */
+    public void channelUpdated(Channel c) {
+        int index = indexOf(c.getChannelId(), 0);
+        if (index != -1) {
+            this.fireTableRowsUpdated(index, index);
+        }
+    }
+
+    /**
+     * Set what is airing now on the channels and update all rows with a
+     * single event.
+     *
+     * @param entries Now playing of the channels.
+     */
+    public void setNowPlaying(List<NowPlaying> entries) {
+        nowPlaying.clear();
+        for (NowPlaying entry : entries) {
+            nowPlaying.put(entry.getChannelId(), entry);
+        }
+        if (!channelList.isEmpty()) {
+            this.fireTableRowsUpdated(0, channelList.size() - 1);
+        }
     }
 
     /**
@@ -81,7 +284,7 @@ public class ChannelModel extends AbstractTableModel {
      */
     @Override
     public String getColumnName(int columnIndex) {
-        return "Namn";
+        return columnIndex == 0 ? "Namn" : "Sänds nu";
     }
 
 
@@ -90,11 +293,14 @@ public class ChannelModel extends AbstractTableModel {
      */
     public void clearChannelList(){
         int length = channelList.size();
+        if (length == 0) {
+            return;
+        }
         for(Channel c : channelList) {
             c.getPrograms().clear();
         }
         channelList.clear();
-        this.fireTableRowsDeleted(0, length);
+        this.fireTableRowsDeleted(0, length - 1);
     }
 
 }
@@ -1,9 +1,12 @@
 package View;
 
 import Model.Program;
+import Model.ProgramColumns;
 
 import javax.swing.table.AbstractTableModel;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Define table layout for program table.
@@ -12,10 +15,23 @@ import java.util.ArrayList;
  */
 public class ProgramModel extends AbstractTableModel {
 
-    private final ArrayList<Program> programs;
+    private static final Comparator<Program> BY_START =
+            Comparator.comparingLong(Program::getStartMillis);
 
+    private static final Comparator<String> NAME_ORDER =
+            Comparator.nullsFirst(Comparator.naturalOrder());
+
+    private static final Comparator<Program> BY_IDENTITY = BY_START
+            .thenComparing(Program::getName, NAME_ORDER);
+
+    private final ProgramColumns programs;
+
+    /**
+     * Initialize empty table. Programs are stored as columns and only the
+     * values of shown cells are read. Times are formatted once per row.
+     */
     public ProgramModel() {
-        programs = new ArrayList<>();
+        programs = new ProgramColumns();
     }
 
     /**
@@ -47,23 +63,23 @@ public class ProgramModel extends AbstractTableModel {
      */
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Program program = programs.get(rowIndex);
         return switch (columnIndex) {
-            case 0 -> program.getName();
-            case 1 -> program.getStartTime();
-            case 2 -> program.getEndTime();
+            case 0 -> programs.getName(rowIndex);
+            case 1 -> programs.getStartText(rowIndex);
+            case 2 -> programs.getEndText(rowIndex);
             default -> null;
         };
     }
 
     /**
-     * Get program at index given row index.
+     * Get program at index given row index. A new program is created from
+     * the columns, so it should only be asked for when a row is selected.
      *
      * @param rowIndex Index of row.
      * @return Program at index.
      */
     public Program getProgramAt(int rowIndex) {
-        return programs.get(rowIndex);
+        return programs.getProgram(rowIndex);
     }
 
     /**
@@ -88,8 +104,169 @@ public class ProgramModel extends AbstractTableModel {
      * @param p Program to add.
      */
     public void addProgram(Program p) {
-        programs.add(p);
-        this.fireTableRowsInserted(programs.size(), programs.size());
+        programs.insert(programs.size(), List.of(p));
+        this.fireTableRowsInserted(programs.size() - 1, programs.size() - 1);
+    }
+
+    /**
+     * Add programs to end of list with a single insert event.
+     *
+     * @param added Programs to add.
+     */
+    public void addPrograms(List<Program> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        int first = programs.size();
+        programs.insert(first, added);
+        this.fireTableRowsInserted(first, programs.size() - 1);
+    }
+
+    /**
+     * Insert programs in start time order. Programs that fit between the
+     * same two existing rows are inserted as one run with a single event,
+     * so a batch after the last row costs one event and the selection of
+     * the table is kept.
+     *
+     * @param added Programs to insert.
+     */
+    public void addProgramsSorted(List<Program> added) {
+        if (added.isEmpty()) {
+            return;
+        }
+        ArrayList<Program> batch = new ArrayList<>(added);
+        batch.sort(BY_START);
+
+        int first = 0;
+        while (first < batch.size()) {
+            int index = insertionIndex(batch.get(first).getStartMillis());
+            int end = first + 1;
+            if (index == programs.size()) {
+                end = batch.size();
+            } else {
+                long next = programs.getStart(index);
+                while (end < batch.size()
+                        && batch.get(end).getStartMillis() < next) {
+                    end++;
+                }
+            }
+            programs.insert(index, batch.subList(first, end));
+            this.fireTableRowsInserted(index, index + end - first - 1);
+            first = end;
+        }
+    }
+
+    /**
+     * Find index after all programs starting at or before the given time.
+     *
+     * @param start Start time in epoch millis.
+     * @return Index to insert at.
+     */
+    private int insertionIndex(long start) {
+        int low = 0;
+        int high = programs.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (programs.getStart(mid) <= start) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Replace all programs with a single event.
+     *
+     * @param replacement Programs to show.
+     */
+    public void replaceAll(List<Program> replacement) {
+        int oldLength = programs.size();
+        programs.clear();
+        programs.insert(0, replacement);
+
+        if (oldLength == 0) {
+            if (programs.size() > 0) {
+                this.fireTableRowsInserted(0, programs.size() - 1);
+            }
+        } else if (programs.size() == 0) {
+            this.fireTableRowsDeleted(0, oldLength - 1);
+        } else {
+            this.fireTableDataChanged();
+        }
+    }
+
+    /**
+     * Apply a new schedule as differences to the table. Programs are
+     * identified by start time and title. Runs of removed and added
+     * programs get one event each and changed programs are updated, so
+     * the selection of the table is kept.
+     *
+     * @param fresh New schedule.
+     */
+    public void applyPrograms(List<Program> fresh) {
+        ArrayList<Program> sorted = new ArrayList<>(fresh);
+        sorted.sort(BY_IDENTITY);
+
+        int i = 0;
+        int j = 0;
+        int firstUpdated = -1;
+        int lastUpdated = -1;
+        while (i < programs.size() || j < sorted.size()) {
+
+            int removeEnd = i;
+            while (removeEnd < programs.size() && (j == sorted.size()
+                    || compareRow(removeEnd, sorted.get(j)) < 0)) {
+                removeEnd++;
+            }
+            if (removeEnd > i) {
+                programs.remove(i, removeEnd);
+                this.fireTableRowsDeleted(i, removeEnd - 1);
+                continue;
+            }
+
+            int addEnd = j;
+            while (addEnd < sorted.size() && (i == programs.size()
+                    || compareRow(i, sorted.get(addEnd)) > 0)) {
+                addEnd++;
+            }
+            if (addEnd > j) {
+                programs.insert(i, sorted.subList(j, addEnd));
+                this.fireTableRowsInserted(i, i + addEnd - j - 1);
+                i += addEnd - j;
+                j = addEnd;
+                continue;
+            }
+
+            if (!programs.matches(i, sorted.get(j))) {
+                programs.set(i, sorted.get(j));
+                if (firstUpdated == -1) {
+                    firstUpdated = i;
+                }
+                lastUpdated = i;
+            }
+            i++;
+            j++;
+        }
+        if (firstUpdated != -1) {
+            this.fireTableRowsUpdated(firstUpdated, lastUpdated);
+        }
+    }
+
+    /**
+     * Compare a row with a program by start time and title.
+     *
+     * @param row     Row index.
+     * @param program Program.
+     * @return Negative, zero or positive as the row is before, equal to or
+     * after the program.
+     */
+    private int compareRow(int row, Program program) {
+        int byStart = Long.compare(programs.getStart(row),
+                program.getStartMillis());
+        return byStart != 0 ? byStart
+                : NAME_ORDER.compare(programs.getName(row), program.getName());
     }
 
     /**
@@ -97,7 +274,10 @@ public class ProgramModel extends AbstractTableModel {
      */
     public void clearProgramList() {
         int length = programs.size();
+        if (length == 0) {
+            return;
+        }
         programs.clear();
-        this.fireTableRowsDeleted(0, length);
+        this.fireTableRowsDeleted(0, length - 1);
     }
 }
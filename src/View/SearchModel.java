@@ -0,0 +1,126 @@
+package View;
+
+import Model.Channel;
+import Model.Program;
+import Model.ProgramSearchIndex;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tablemodel for search results.
+ *
+ * @author Edvin Lindholm (c19elm)
+ */
+public class SearchModel extends AbstractTableModel {
+
+    private final ChannelModel channels;
+    private final ArrayList<ProgramSearchIndex.Hit> hits;
+    private final ArrayList<Program> programs;
+
+    /**
+     * Initialize empty list of results.
+     *
+     * @param channels Model of channel table, used for channel names.
+     */
+    public SearchModel(ChannelModel channels) {
+        this.channels = channels;
+        hits = new ArrayList<>();
+        programs = new ArrayList<>();
+    }
+
+    /**
+     * Get amount of rows in table.
+     *
+     * @return Row count.
+     */
+    @Override
+    public int getRowCount() {
+        return hits.size();
+    }
+
+    /**
+     * Gets amount of columns in table.
+     *
+     * @return Column count.
+     */
+    @Override
+    public int getColumnCount() {
+        return 3;
+    }
+
+    /**
+     * Get value at specified index.
+     *
+     * @param rowIndex    Index of the row.
+     * @param columnIndex Index of the column.
+     * @return Value at index.
+     */
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        ProgramSearchIndex.Hit hit = hits.get(rowIndex);
+        Program program = programs.get(rowIndex);
+        return switch (columnIndex) {
+            case 0 -> {
+                Channel channel = channels.getChannelById(hit.getChannelId());
+                yield channel == null ? "" : channel.getName();
+            }
+            case 1 -> program.getName();
+            case 2 -> program.getStartTime();
+            default -> null;
+        };
+    }
+
+    /**
+     * Get name of columns.
+     *
+     * @param column Column index.
+     * @return Column name.
+     */
+    @Override
+    public String getColumnName(int column) {
+        return switch (column) {
+            case 0 -> "Kanal";
+            case 1 -> "Namn";
+            case 2 -> "Start tid";
+            default -> null;
+        };
+    }
+
+    /**
+     * Get program at index given row index.
+     *
+     * @param rowIndex Index of row.
+     * @return Program at index.
+     */
+    public Program getProgramAt(int rowIndex) {
+        return programs.get(rowIndex);
+    }
+
+    /**
+     * Replace all results with a single event. A program is created for
+     * each hit once, so its formatted times are kept while it is shown.
+     *
+     * @param results Hits to show.
+     */
+    public void setHits(List<ProgramSearchIndex.Hit> results) {
+        int oldLength = hits.size();
+        hits.clear();
+        hits.addAll(results);
+        programs.clear();
+        for (ProgramSearchIndex.Hit hit : results) {
+            programs.add(hit.getProgram());
+        }
+
+        if (oldLength == 0) {
+            if (!hits.isEmpty()) {
+                this.fireTableRowsInserted(0, hits.size() - 1);
+            }
+        } else if (hits.isEmpty()) {
+            this.fireTableRowsDeleted(0, oldLength - 1);
+        } else {
+            this.fireTableDataChanged();
+        }
+    }
+}
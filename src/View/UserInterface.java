@@ -1,10 +1,13 @@
 package View;
 
 import javax.swing.*;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionListener;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * User interface class. Shows table of channels and programs.
@@ -13,30 +16,46 @@ import java.awt.image.BufferedImage;
  */
 public class UserInterface {
 
+    private static final int ICON_CACHE_SIZE = 64;
+
     private final JFrame frame;
     private JMenuBar menuBar;
 
     private JTable channelTable;
     private JTable programTable;
+    private JTable searchTable;
 
     private JScrollPane programScroller;
     private JScrollPane channelScroller;
+    private JScrollPane searchScroller;
 
     private ChannelModel channelTableModel;
     private ProgramModel programTableModel;
+    private SearchModel searchTableModel;
 
     private ListSelectionListener channelSelectionListener;
     private ListSelectionListener programSelectionListener;
+    private ListSelectionListener searchSelectionListener;
 
     private final JLabel channelPicture;
     private final JLabel programPicture;
     private final JLabel description;
     private final JButton update;
+    private final JTextField search;
+
+    private final Map<Image, ImageIcon> icons;
 
     /**
      * Constructs window with menu, table and buttons.
      */
     public UserInterface() {
+        icons = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Image, ImageIcon> eldest) {
+                return size() > ICON_CACHE_SIZE;
+            }
+        };
         frame = new JFrame("RadioInfo");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setPreferredSize(new Dimension(1450, 850));
@@ -61,6 +80,7 @@ public class UserInterface {
 
         tablePanel.add(channelScroller);
         tablePanel.add(programScroller);
+        tablePanel.add(searchScroller);
 
         JPanel miscPanel = new JPanel();
 
@@ -68,7 +88,10 @@ public class UserInterface {
         frame.add(tablePanel, BorderLayout.CENTER);
 
         update = new JButton("Uppdatera kanaler");
+        search = new JTextField(20);
 
+        miscPanel.add(new JLabel("Sök program:"));
+        miscPanel.add(search);
         miscPanel.add(update, BorderLayout.SOUTH);
         miscPanel.add(description, BorderLayout.NORTH);
 
@@ -111,9 +134,15 @@ public class UserInterface {
 
         programTableModel = new ProgramModel();
         programTable = new JTable(programTableModel);
+        programTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
         channelScroller = new JScrollPane(channelTable);
         programScroller = new JScrollPane(programTable);
+
+        searchTableModel = new SearchModel(channelTableModel);
+        searchTable = new JTable(searchTableModel);
+        searchTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        searchScroller = new JScrollPane(searchTable);
     }
 
     /**
@@ -138,6 +167,35 @@ public class UserInterface {
         programSelectionListener = selectionListener;
     }
 
+    /**
+     * Set selectionListener to search tables selection listener.
+     *
+     * @param selectionListener Listener to set.
+     */
+    public void setSearchSelectionListener(
+            ListSelectionListener selectionListener) {
+
+        searchSelectionListener = selectionListener;
+    }
+
+    /**
+     * Add listener for changes of the search text.
+     *
+     * @param listener Listener to add.
+     */
+    public void addSearchListener(DocumentListener listener) {
+        search.getDocument().addDocumentListener(listener);
+    }
+
+    /**
+     * Get text in search field.
+     *
+     * @return Search text.
+     */
+    public String getSearchText() {
+        return search.getText();
+    }
+
     /**
      * Add ActionListener for button.
      *
@@ -155,6 +213,8 @@ public class UserInterface {
                 .addListSelectionListener(channelSelectionListener);
         programTable.getSelectionModel()
                 .addListSelectionListener(programSelectionListener);
+        searchTable.getSelectionModel()
+                .addListSelectionListener(searchSelectionListener);
     }
 
     /**
@@ -166,6 +226,19 @@ public class UserInterface {
         return channelTable.getSelectedRow();
     }
 
+    /**
+     * Get range of rows that fit in the visible part of channelTable,
+     * whether or not the rows exist yet.
+     *
+     * @return First and last visible row.
+     */
+    public int[] getVisibleChannelRows() {
+        Rectangle view = channelTable.getVisibleRect();
+        int rowHeight = Math.max(1, channelTable.getRowHeight());
+        return new int[]{view.y / rowHeight,
+                (view.y + view.height) / rowHeight};
+    }
+
     /**
      * Get selected row in programTable.
      *
@@ -176,6 +249,24 @@ public class UserInterface {
     }
 
 
+    /**
+     * Get selected row in searchTable.
+     *
+     * @return Selected row in searchTable.
+     */
+    public int getSelectedRowInSearchTable() {
+        return searchTable.getSelectedRow();
+    }
+
+    /**
+     * Get model of search table.
+     *
+     * @return Model of search table.
+     */
+    public SearchModel getSearchTableModel() {
+        return searchTableModel;
+    }
+
     /**
      * Getter for table model.
      *
@@ -215,7 +306,7 @@ public class UserInterface {
     }
 
     /**
-     * Set label icon to image.
+     * Set label icon to image. Icons are cached per image.
      *
      * @param image Image to show on label.
      * @param label Label to add image to.
@@ -229,6 +320,24 @@ public class UserInterface {
             return;
         }
         label.setText("");
+        label.setIcon(icons.computeIfAbsent(image, this::createIcon));
+
+        label.repaint();
+        label.revalidate();
+    }
+
+    /**
+     * Create 300x300 icon from image. Images from the model are already
+     * decoded to that size and are used as they are.
+     *
+     * @param image Image to create icon from.
+     * @return Icon.
+     */
+    private ImageIcon createIcon(Image image) {
+        if (image.getWidth(null) == 300 && image.getHeight(null) == 300) {
+            return new ImageIcon(image);
+        }
+
         Image newImage = image.getScaledInstance(
                 300, 300, Image.SCALE_SMOOTH);
 
@@ -240,10 +349,7 @@ public class UserInterface {
         Graphics g = BImage.getGraphics();
         g.drawImage(newImage, 0, 0, null);
         g.dispose();
-        label.setIcon(new ImageIcon(BImage));
-
-        label.repaint();
-        label.revalidate();
+        return new ImageIcon(BImage);
     }
 
 